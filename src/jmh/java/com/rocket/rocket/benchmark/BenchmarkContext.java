@@ -0,0 +1,217 @@
+package com.rocket.rocket.benchmark;
+
+import com.rocket.rocket.RocketlibApiApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * Levanta la aplicación (sin servidor web) sobre una base H2 en modo Oracle con datos de volumen realista.
+ * <p>
+ * Volúmenes configurables con propiedades del sistema:
+ * bench.students (20000), bench.books (20000), bench.loans (200000).
+ * Los estudiantes de la primera mitad no tienen préstamos activos y se usan para crear préstamos;
+ * los de la segunda mitad tienen préstamos activos que se usan para registrar devoluciones.
+ */
+public final class BenchmarkContext {
+
+    static final String URL = "jdbc:h2:mem:rocketbench;MODE=Oracle;DB_CLOSE_DELAY=-1;DEFAULT_NULL_ORDERING=HIGH";
+
+    static final int STUDENTS = Integer.getInteger("bench.students", 20_000);
+    static final int BOOKS = Integer.getInteger("bench.books", 20_000);
+    static final int LOANS = Integer.getInteger("bench.loans", 200_000);
+    static final int ACTIVE_LOANS_PER_STUDENT = 3;
+
+    static final String[] WORDS = {
+            "cien", "años", "soledad", "memoria", "amor", "tiempo", "cólera", "laberinto", "ciudad", "perros",
+            "casa", "espíritus", "pedro", "páramo", "sombra", "viento", "ficciones", "aleph", "rayuela", "historia",
+            "crónica", "muerte", "anunciada", "otoño", "patriarca", "general", "noche", "tlatelolco", "llano", "llamas",
+            "región", "transparente", "guerra", "paz", "rojo", "negro", "física", "química", "cálculo", "álgebra",
+            "programación", "algoritmos", "datos", "redes", "sistemas", "operativos", "compiladores", "economía"
+    };
+    static final String[] AUTHORS = {
+            "Gabriel García Márquez", "Juan Rulfo", "Octavio Paz", "Carlos Fuentes", "Jorge Luis Borges",
+            "Julio Cortázar", "Isabel Allende", "Mario Vargas Llosa", "Elena Poniatowska", "Rosario Castellanos",
+            "Laura Esquivel", "Carlos Ruiz Zafón", "Thomas Cormen", "Andrew Tanenbaum", "Donald Knuth"
+    };
+    static final String[] PUBLISHERS = {"Sudamericana", "Alfaguara", "Planeta", "Anagrama", "Fondo de Cultura", "Pearson"};
+
+    private static ConfigurableApplicationContext context;
+    private static long firstActiveLoanId;
+    private static long lastSeededLoanId;
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * @return Contexto de Spring compartido por todos los benchmarks del mismo proceso
+     */
+    static synchronized ConfigurableApplicationContext get() throws Exception {
+        if (context == null) {
+            seed();
+            context = new SpringApplicationBuilder(RocketlibApiApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .properties(
+                            "spring.datasource.url=" + URL,
+                            "spring.datasource.driver-class-name=org.h2.Driver",
+                            "spring.datasource.username=sa",
+                            "spring.datasource.password=",
+                            "rocket.outbox.enabled=false",
+                            "logging.level.root=WARN")
+                    .run();
+        }
+        return context;
+    }
+
+    static synchronized void close() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    static Connection connection() throws SQLException {
+        return DriverManager.getConnection(URL, "sa", "");
+    }
+
+    /**
+     * @return Primer ID de los préstamos activos sembrados (segunda mitad de estudiantes)
+     */
+    static long firstActiveLoanId() {
+        return firstActiveLoanId;
+    }
+
+    /**
+     * @return Último ID sembrado; los préstamos con ID mayor los crearon los benchmarks
+     */
+    static long lastSeededLoanId() {
+        return lastSeededLoanId;
+    }
+
+    private static void seed() throws SQLException, IOException {
+        Random random = new Random(42);
+        try (Connection connection = connection()) {
+            connection.setAutoCommit(false);
+            try (Statement st = connection.createStatement()) {
+                for (String ddl : readSchema()) {
+                    st.execute(ddl);
+                }
+            }
+
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO LIBROS (ID, TITULO, AUTOR, FECHA_REGISTRO, STOCK, EDITORIAL, DISPONIBLE) "
+                            + "VALUES (?, ?, ?, SYSTIMESTAMP, ?, ?, 1)")) {
+                for (int id = 1; id <= BOOKS; id++) {
+                    ps.setLong(1, id);
+                    ps.setString(2, title(random));
+                    ps.setString(3, AUTHORS[random.nextInt(AUTHORS.length)]);
+                    ps.setInt(4, 1_000_000);
+                    ps.setString(5, PUBLISHERS[random.nextInt(PUBLISHERS.length)]);
+                    ps.addBatch();
+                    if (id % 1000 == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO USUARIOS (ID, NOMBRE, APELLIDOS, TELEFONO, EMAIL, MATRICULA) VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (int id = 1; id <= STUDENTS; id++) {
+                    ps.setLong(1, id);
+                    ps.setString(2, "Estudiante" + id);
+                    ps.setString(3, "Apellido" + (id % 997) + " Apellido" + (id % 89));
+                    ps.setString(4, "777" + (1_000_000 + id));
+                    ps.setString(5, "estudiante" + id + "@utez.edu.mx");
+                    ps.setString(6, "2021TN" + id);
+                    ps.addBatch();
+                    if (id % 1000 == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+
+            long loanId = 0;
+            LocalDate today = LocalDate.now();
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO PRESTAMOS (ID, USUARIO_ID, LIBRO_ID, FECHA_PRESTAMO, FECHA_DEVOLUCION, ESTADO) "
+                            + "VALUES (?, ?, ?, ?, ?, ?)")) {
+                // Historial cerrado de los últimos tres años
+                for (int i = 0; i < LOANS; i++) {
+                    LocalDate fecha = today.minusDays(random.nextInt(3 * 365) + 30);
+                    addLoan(ps, ++loanId, 1 + random.nextInt(STUDENTS), 1 + random.nextInt(BOOKS),
+                            fecha, random.nextInt(20) == 0 ? "CANCELADO" : "DEVUELTO");
+                    if (loanId % 1000 == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                // Préstamos activos de la segunda mitad de estudiantes
+                firstActiveLoanId = loanId + 1;
+                for (int student = STUDENTS / 2 + 1; student <= STUDENTS; student++) {
+                    for (int k = 0; k < ACTIVE_LOANS_PER_STUDENT; k++) {
+                        addLoan(ps, ++loanId, student, 1 + random.nextInt(BOOKS),
+                                today.minusDays(random.nextInt(14)), "ACTIVO");
+                        if (loanId % 1000 == 0) {
+                            ps.executeBatch();
+                        }
+                    }
+                }
+                ps.executeBatch();
+            }
+            lastSeededLoanId = loanId;
+
+            try (Statement st = connection.createStatement()) {
+                st.execute("ALTER TABLE LIBROS ALTER COLUMN ID RESTART WITH " + (BOOKS + 1));
+                st.execute("CREATE SEQUENCE PRESTAMOS_SEQ START WITH " + (loanId + 1) + " INCREMENT BY 50");
+                st.execute("CREATE SEQUENCE USUARIOS_SEQ START WITH " + (STUDENTS + 1) + " INCREMENT BY 50");
+            }
+            connection.commit();
+        }
+    }
+
+    private static void addLoan(PreparedStatement ps, long id, long studentId, long bookId,
+                                LocalDate fecha, String estado) throws SQLException {
+        ps.setLong(1, id);
+        ps.setLong(2, studentId);
+        ps.setLong(3, bookId);
+        ps.setDate(4, Date.valueOf(fecha));
+        ps.setDate(5, Date.valueOf(fecha.plusDays(15)));
+        ps.setString(6, estado);
+        ps.addBatch();
+    }
+
+    private static String title(Random random) {
+        int words = 2 + random.nextInt(4);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+        }
+        return title.toString();
+    }
+
+    private static String[] readSchema() throws IOException {
+        try (InputStream in = BenchmarkContext.class.getResourceAsStream("/bench-schema.sql");
+             Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name())) {
+            String sql = scanner.useDelimiter("\\A").next().replaceAll("(?m)^--.*$", "");
+            return sql.split(";\\s*");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.rocket.rocket.benchmark;
+
+import com.rocket.rocket.mapper.BookMapper;
+import com.rocket.rocket.model.Book;
+import com.rocket.rocket.service.BookService;
+import com.rocket.rocket.utils.CustomResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+
+    private BookService bookService;
+    private BookMapper bookMapper;
+    private final AtomicLong queryCursor = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        bookService = BenchmarkContext.get().getBean(BookService.class);
+        bookMapper = BenchmarkContext.get().getBean(BookMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public CustomResponse<List<Book>> findByTitle() {
+        return bookService.findByTitle(nextQuery(), 50);
+    }
+
+    /**
+     * Referencia: la misma búsqueda con LIKE directo en la base de datos
+     */
+    @Benchmark
+    public List<Book> findByTitleSql() {
+        return bookMapper.findByTitle(nextQuery());
+    }
+
+    // Palabras del catálogo sin acentos y en mayúsculas, como las escribe un usuario en el buscador
+    private String nextQuery() {
+        String word = BenchmarkContext.WORDS[(int) (queryCursor.getAndIncrement() % BenchmarkContext.WORDS.length)];
+        return word.toUpperCase();
+    }
+}
@@ -0,0 +1,57 @@
+package com.rocket.rocket.benchmark;
+
+import com.rocket.rocket.model.Book;
+import com.rocket.rocket.model.Loan;
+import com.rocket.rocket.model.Student;
+import com.rocket.rocket.service.EmailService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailServiceBenchmark {
+
+    private EmailService emailService;
+    private Student student;
+    private Loan loan;
+    private Book book;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        emailService = BenchmarkContext.get().getBean(EmailService.class);
+        student = new Student(1L, "Ana", "López Hernández", "7771234567", "ana@utez.edu.mx", "20213TN001");
+        book = new Book();
+        book.setId(1L);
+        book.setTitulo("Cien años de soledad");
+        book.setAutor("Gabriel García Márquez");
+        book.setEditorial("Sudamericana");
+        loan = new Loan(1L, 1L, 1L, LocalDate.now(), LocalDate.now().plusDays(15), "ACTIVO", student, book);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public String renderLoanConfirmation() {
+        return emailService.renderLoanConfirmation(student, loan, book);
+    }
+}
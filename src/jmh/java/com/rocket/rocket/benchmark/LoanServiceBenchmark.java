@@ -0,0 +1,93 @@
+package com.rocket.rocket.benchmark;
+
+import com.rocket.rocket.model.Loan;
+import com.rocket.rocket.service.LoanService;
+import com.rocket.rocket.utils.CustomResponse;
+import com.rocket.rocket.utils.KeysetPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoanServiceBenchmark {
+
+    private LoanService loanService;
+    private final AtomicLong studentCursor = new AtomicLong();
+    private final AtomicLong bookCursor = new AtomicLong();
+    private final AtomicLong activeLoanCursor = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        loanService = BenchmarkContext.get().getBean(LoanService.class);
+    }
+
+    /**
+     * Entre iteraciones se cierran los préstamos creados por el benchmark y se reabren los devueltos,
+     * para que crearLoan no choque con el límite de préstamos activos y registrarDevolucion
+     * siempre encuentre préstamos activos.
+     */
+    @Setup(Level.Iteration)
+    public void resetLoans() throws Exception {
+        try (Connection connection = BenchmarkContext.connection(); Statement st = connection.createStatement()) {
+            st.executeUpdate("UPDATE PRESTAMOS SET ESTADO = 'DEVUELTO' WHERE ID > "
+                    + BenchmarkContext.lastSeededLoanId() + " AND ESTADO = 'ACTIVO'");
+            st.executeUpdate("UPDATE PRESTAMOS SET ESTADO = 'ACTIVO' WHERE ID BETWEEN "
+                    + BenchmarkContext.firstActiveLoanId() + " AND " + BenchmarkContext.lastSeededLoanId());
+        }
+        studentCursor.set(0);
+        activeLoanCursor.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public CustomResponse<Loan> crearLoan() {
+        // Estudiantes de la primera mitad en orden circular, sin préstamos activos al inicio de la iteración
+        long students = BenchmarkContext.STUDENTS / 2;
+        Loan loan = new Loan();
+        loan.setUsuarioId(1 + studentCursor.getAndIncrement() % students);
+        loan.setLibroId(1 + bookCursor.getAndIncrement() % BenchmarkContext.BOOKS);
+        return loanService.crearLoan(loan);
+    }
+
+    @Benchmark
+    public CustomResponse<Loan> registrarDevolucion() {
+        long active = BenchmarkContext.lastSeededLoanId() - BenchmarkContext.firstActiveLoanId() + 1;
+        long id = BenchmarkContext.firstActiveLoanId() + activeLoanCursor.getAndIncrement() % active;
+        return loanService.registrarDevolucion(id);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CustomResponse<List<Loan>> getAllLoans() {
+        return loanService.getAllLoans();
+    }
+
+    @Benchmark
+    public CustomResponse<KeysetPage<Loan>> getLoansPage() {
+        return loanService.getLoansPage(null, KeysetPage.DEFAULT_LIMIT);
+    }
+}
@@ -0,0 +1,50 @@
+package com.rocket.rocket.benchmark;
+
+import com.rocket.rocket.model.Student;
+import com.rocket.rocket.service.StudentService;
+import com.rocket.rocket.utils.CustomResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentServiceBenchmark {
+
+    private StudentService studentService;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        studentService = BenchmarkContext.get().getBean(StudentService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public CustomResponse<Student> save() {
+        long n = sequence.incrementAndGet();
+        Student student = new Student(null, "Nuevo", "Estudiante Benchmark", "7771234567",
+                "nuevo" + n + "@bench.utez.edu.mx", "BENCH" + n);
+        return studentService.save(student);
+    }
+}
@@ -0,0 +1,51 @@
+-- Esquema equivalente al de Oracle para los benchmarks (H2 en modo Oracle)
+CREATE TABLE LIBROS (
+    ID             NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    TITULO         VARCHAR2(200) NOT NULL,
+    AUTOR          VARCHAR2(200),
+    FECHA_REGISTRO TIMESTAMP,
+    STOCK          NUMBER(10) DEFAULT 0 NOT NULL,
+    EDITORIAL      VARCHAR2(200),
+    DISPONIBLE     NUMBER(1) DEFAULT 1
+);
+
+CREATE TABLE USUARIOS (
+    ID        NUMBER PRIMARY KEY,
+    NOMBRE    VARCHAR2(100) NOT NULL,
+    APELLIDOS VARCHAR2(150) NOT NULL,
+    TELEFONO  VARCHAR2(20),
+    EMAIL     VARCHAR2(150) NOT NULL UNIQUE,
+    MATRICULA VARCHAR2(20) UNIQUE
+);
+
+CREATE TABLE PRESTAMOS (
+    ID               NUMBER PRIMARY KEY,
+    USUARIO_ID       NUMBER NOT NULL REFERENCES USUARIOS (ID),
+    LIBRO_ID         NUMBER NOT NULL REFERENCES LIBROS (ID),
+    FECHA_PRESTAMO   DATE NOT NULL,
+    FECHA_DEVOLUCION DATE,
+    ESTADO           VARCHAR2(20) NOT NULL
+);
+CREATE INDEX PRESTAMOS_USUARIO_IX ON PRESTAMOS (USUARIO_ID, ESTADO, LIBRO_ID);
+CREATE INDEX PRESTAMOS_FECHA_IX ON PRESTAMOS (FECHA_PRESTAMO DESC, ID DESC);
+
+CREATE TABLE NOTIFICACIONES (
+    ID                  NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    TIPO                VARCHAR2(40) NOT NULL,
+    PRESTAMO_ID         NUMBER NOT NULL,
+    USUARIO_ID          NUMBER NOT NULL,
+    ESTADO              VARCHAR2(20) NOT NULL,
+    INTENTOS            NUMBER(3) DEFAULT 0 NOT NULL,
+    PROXIMO_INTENTO     TIMESTAMP NOT NULL,
+    ULTIMO_ERROR        VARCHAR2(500),
+    LOTE                VARCHAR2(36),
+    FECHA_CREACION      TIMESTAMP NOT NULL,
+    FECHA_ACTUALIZACION TIMESTAMP
+);
+
+CREATE TABLE VERSIONES_COLECCION (
+    COLECCION VARCHAR2(20) PRIMARY KEY,
+    VERSION   NUMBER(19) DEFAULT 0 NOT NULL
+);
+INSERT INTO VERSIONES_COLECCION (COLECCION, VERSION) VALUES ('BOOKS', 0);
+INSERT INTO VERSIONES_COLECCION (COLECCION, VERSION) VALUES ('LOANS', 0);
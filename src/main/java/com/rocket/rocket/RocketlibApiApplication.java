@@ -3,9 +3,11 @@ package com.rocket.rocket;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("com.rocket.rocket.mapper")
+@EnableScheduling
 public class RocketlibApiApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,134 @@
+package com.rocket.rocket.config;
+
+import com.rocket.rocket.utils.QueryProfile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Pools separados (bulkheads) para atender las peticiones de los controladores.
+ * <p>
+ * Los hilos de Tomcat solo reciben la petición y la pasan al pool de su tipo de trabajo:
+ * escrituras, búsquedas, listados completos o respuestas en streaming. Cada pool tiene hilos y cola acotados; cuando
+ * la cola se llena la petición se rechaza de inmediato con 503, así una carga lenta no
+ * acapara los hilos de las demás ni los de Tomcat (health checks incluidos).
+ */
+@Configuration
+public class BulkheadConfig {
+
+    /**
+     * Atributo de la petición que marca una respuesta en streaming (exportaciones y stream=true);
+     * su límite de tiempo es rocket.bulkhead.stream-timeout-ms en lugar de spring.mvc.async.request-timeout
+     */
+    public static final String STREAMING_REQUEST = BulkheadConfig.class.getName() + ".STREAMING_REQUEST";
+
+    /**
+     * Altas, ediciones, devoluciones y bajas
+     */
+    @Bean
+    public ThreadPoolTaskExecutor writeExecutor(MeterRegistry registry,
+                                                @Value("${rocket.bulkhead.write.threads:20}") int threads,
+                                                @Value("${rocket.bulkhead.write.queue:100}") int queue) {
+        return bulkhead("write", threads, queue, registry);
+    }
+
+    /**
+     * Consultas por ID y búsquedas por texto
+     */
+    @Bean
+    public ThreadPoolTaskExecutor searchExecutor(MeterRegistry registry,
+                                                 @Value("${rocket.bulkhead.search.threads:20}") int threads,
+                                                 @Value("${rocket.bulkhead.search.queue:200}") int queue) {
+        return bulkhead("search", threads, queue, registry);
+    }
+
+    /**
+     * Listados completos y páginas
+     */
+    @Bean
+    public ThreadPoolTaskExecutor exportExecutor(MeterRegistry registry,
+                                                 @Value("${rocket.bulkhead.export.threads:4}") int threads,
+                                                 @Value("${rocket.bulkhead.export.queue:20}") int queue) {
+        return bulkhead("export", threads, queue, registry);
+    }
+
+    /**
+     * Exportaciones, stream=true e importaciones: pueden durar hasta rocket.bulkhead.stream-timeout-ms, así que no
+     * comparten hilos con los listados, que ocupan un hilo solo lo que tarda la consulta
+     */
+    @Bean
+    public ThreadPoolTaskExecutor streamExecutor(MeterRegistry registry,
+                                                 @Value("${rocket.bulkhead.stream.threads:4}") int threads,
+                                                 @Value("${rocket.bulkhead.stream.queue:10}") int queue) {
+        return bulkhead("stream", threads, queue, registry);
+    }
+
+    /**
+     * Los StreamingResponseBody y Callable se ejecutan en el pool de streaming en lugar de un hilo nuevo por petición
+     * y, si la petición está marcada con {@link #STREAMING_REQUEST}, con el límite de tiempo de streaming
+     */
+    @Bean
+    public WebMvcConfigurer asyncSupportConfigurer(@Qualifier("streamExecutor") ThreadPoolTaskExecutor streamExecutor,
+                                                   @Value("${rocket.bulkhead.stream-timeout-ms:1800000}") long streamTimeoutMs) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(streamExecutor);
+                configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                        // Se llama antes de iniciar el procesamiento asíncrono, cuando aún se puede cambiar el límite
+                        if (request instanceof AsyncWebRequest
+                                && request.getAttribute(STREAMING_REQUEST, RequestAttributes.SCOPE_REQUEST) != null) {
+                            ((AsyncWebRequest) request).setTimeout(streamTimeoutMs);
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    private static ThreadPoolTaskExecutor bulkhead(String name, int threads, int queue, MeterRegistry registry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queue);
+        executor.setThreadNamePrefix(name + "-");
+        // Las sentencias del pool se anotan en el perfil de la petición que envió la tarea (si se está perfilando)
+        executor.setTaskDecorator(QueryProfile::wrap);
+        Counter rejected = Counter.builder("rocket.bulkhead.rejected")
+                .description("Peticiones rechazadas porque la cola del pool estaba llena")
+                .tag("pool", name)
+                .register(registry);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            throw new TaskRejectedException("El pool " + name + " está saturado");
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        Gauge.builder("rocket.bulkhead.queue", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Peticiones en espera en la cola del pool")
+                .tag("pool", name)
+                .register(registry);
+        Gauge.builder("rocket.bulkhead.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Hilos del pool atendiendo una petición")
+                .tag("pool", name)
+                .register(registry);
+        return executor;
+    }
+}
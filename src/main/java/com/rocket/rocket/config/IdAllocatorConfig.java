@@ -0,0 +1,78 @@
+package com.rocket.rocket.config;
+
+import com.rocket.rocket.mapper.SequenceMapper;
+import com.rocket.rocket.utils.BlockIdAllocator;
+import com.rocket.rocket.utils.IdAllocator;
+import com.rocket.rocket.utils.SequenceIdAllocator;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionHolder;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Configura la asignación de IDs para PRESTAMOS y USUARIOS.
+ * Estrategias disponibles (rocket.id.strategy):
+ * - sequence: un NEXTVAL por inserción
+ * - block: un NEXTVAL reserva rocket.id.block-size IDs que se entregan en memoria
+ */
+@Configuration
+public class IdAllocatorConfig {
+
+    @Value("${rocket.id.strategy:block}")
+    private String strategy;
+
+    @Value("${rocket.id.block-size:50}")
+    private int blockSize;
+
+    @Bean
+    public IdAllocator loanIdAllocator(SequenceMapper sequenceMapper, SqlSessionFactory sqlSessionFactory,
+                                       @Value("${rocket.id.loan-sequence:PRESTAMOS_SEQ}") String sequenceName) {
+        return create(nextVal(sqlSessionFactory, sequenceMapper, sequenceName));
+    }
+
+    @Bean
+    public IdAllocator studentIdAllocator(SequenceMapper sequenceMapper, SqlSessionFactory sqlSessionFactory,
+                                          @Value("${rocket.id.student-sequence:USUARIOS_SEQ}") String sequenceName) {
+        return create(nextVal(sqlSessionFactory, sequenceMapper, sequenceName));
+    }
+
+    /**
+     * NEXTVAL por la sesión de la transacción en curso. Dentro de una transacción con ExecutorType.BATCH
+     * (préstamos en lote) la consulta va por una sesión BATCH: MyBatis no permite cambiar de ExecutorType
+     * a mitad de una transacción, y la recarga de un bloque puede caer en cualquier inserción.
+     * @param sqlSessionFactory Fábrica de sesiones de los mappers
+     * @param sequenceMapper Mapper con la sesión normal (SIMPLE)
+     * @param sequenceName Nombre de la secuencia (de la configuración, nunca del cliente)
+     * @return Fuente de valores de la secuencia
+     */
+    public static LongSupplier nextVal(SqlSessionFactory sqlSessionFactory, SequenceMapper sequenceMapper,
+                                       String sequenceName) {
+        if (!sequenceName.matches("[A-Za-z_][A-Za-z0-9_$#.]*")) {
+            throw new IllegalArgumentException("Nombre de secuencia inválido: " + sequenceName);
+        }
+        SequenceMapper batchSequences = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH)
+                .getMapper(SequenceMapper.class);
+        return () -> {
+            SqlSessionHolder holder = (SqlSessionHolder) TransactionSynchronizationManager.getResource(sqlSessionFactory);
+            SequenceMapper mapper = holder != null && holder.getExecutorType() == ExecutorType.BATCH
+                    ? batchSequences : sequenceMapper;
+            return mapper.nextVal(sequenceName);
+        };
+    }
+
+    private IdAllocator create(LongSupplier nextVal) {
+        if ("sequence".equalsIgnoreCase(strategy)) {
+            return new SequenceIdAllocator(nextVal);
+        }
+        if ("block".equalsIgnoreCase(strategy)) {
+            return new BlockIdAllocator(nextVal, blockSize);
+        }
+        throw new IllegalArgumentException("Estrategia de IDs desconocida: " + strategy);
+    }
+}
@@ -0,0 +1,114 @@
+package com.rocket.rocket.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registra en Micrometer la latencia, las filas y los errores de cada sentencia de los mappers.
+ * <p>
+ * Métricas (etiqueta statement = ID del mapped statement, por ejemplo
+ * com.rocket.rocket.mapper.LoanMapper.findAllWithDetails):
+ * - rocket.mybatis.statement: timer con etiquetas type y outcome (SUCCESS | ERROR)
+ * - rocket.mybatis.rows: filas devueltas por un SELECT o afectadas por un INSERT/UPDATE/DELETE
+ * - rocket.mybatis.errors: sentencias que terminaron con excepción
+ * <p>
+ * En los SELECT con Cursor o ResultHandler solo se mide la ejecución de la consulta,
+ * no el recorrido de las filas, y no se registran filas.
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class MyBatisMetricsInterceptor implements Interceptor {
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, StatementMeters> meters = new ConcurrentHashMap<>();
+
+    public MyBatisMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        StatementMeters m = meters.computeIfAbsent(statement.getId(), id -> new StatementMeters(statement));
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            m.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            long rows = rows(result);
+            if (rows >= 0) {
+                m.rows.record(rows);
+            }
+            return result;
+        } catch (Throwable e) {
+            m.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            m.errors.increment();
+            throw e;
+        }
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Integer) {
+            return (Integer) result;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        return -1;
+    }
+
+    private final class StatementMeters {
+        final Timer success;
+        final Timer error;
+        final DistributionSummary rows;
+        final Counter errors;
+
+        StatementMeters(MappedStatement statement) {
+            String id = statement.getId();
+            String type = statement.getSqlCommandType().name();
+            success = timer(id, type, "SUCCESS");
+            error = timer(id, type, "ERROR");
+            rows = DistributionSummary.builder("rocket.mybatis.rows")
+                    .description("Filas devueltas o afectadas por sentencia")
+                    .tag("statement", id)
+                    .tag("type", type)
+                    .register(registry);
+            errors = Counter.builder("rocket.mybatis.errors")
+                    .description("Sentencias que terminaron con excepción")
+                    .tag("statement", id)
+                    .tag("type", type)
+                    .register(registry);
+        }
+
+        private Timer timer(String id, String type, String outcome) {
+            return Timer.builder("rocket.mybatis.statement")
+                    .description("Latencia de cada sentencia MyBatis")
+                    .tag("statement", id)
+                    .tag("type", type)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.rocket.rocket.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class OutboxConfig {
+
+    /**
+     * Pool de trabajadores que envía los correos de la bandeja de salida.
+     * Cuando la cola se llena, el hilo del despachador envía el correo él mismo.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor outboxExecutor(@Value("${rocket.outbox.workers:4}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("outbox-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+}
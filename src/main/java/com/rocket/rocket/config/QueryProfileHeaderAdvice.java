@@ -0,0 +1,40 @@
+package com.rocket.rocket.config;
+
+import com.rocket.rocket.utils.QueryProfile;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Agrega X-Query-Profile justo antes de escribir el cuerpo, cuando ya corrieron las sentencias de la petición.
+ * Las respuestas en streaming no lo llevan; su perfil completo queda en el log.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "rocket.profiler.enabled", havingValue = "true")
+public class QueryProfileHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest) {
+            Object profile = ((ServletServerHttpRequest) request).getServletRequest()
+                    .getAttribute(QueryProfilerConfig.PROFILE);
+            if (profile != null) {
+                response.getHeaders().set(QueryProfilerConfig.HEADER, ((QueryProfile) profile).header());
+            }
+        }
+        return body;
+    }
+}
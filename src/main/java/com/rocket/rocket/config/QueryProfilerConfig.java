@@ -0,0 +1,86 @@
+package com.rocket.rocket.config;
+
+import com.rocket.rocket.utils.QueryProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Perfil de sentencias por petición para desarrollo y staging (rocket.profiler.enabled=true).
+ * <p>
+ * Cada petición de la API recibe un {@link QueryProfile} que sigue a la petición por los pools y la
+ * respuesta asíncrona. Al responder se agrega el encabezado X-Query-Profile ({@link QueryProfileHeaderAdvice}), por ejemplo
+ * {@code queries=12; time=8.4ms; n+1=BookMapper.findById*10}, y al terminar se escribe el resumen en el log:
+ * en WARN si hay sentencias repetidas o N+1, en DEBUG si no; con DEBUG también se escribe cada sentencia.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rocket.profiler.enabled", havingValue = "true")
+public class QueryProfilerConfig {
+
+    public static final String HEADER = "X-Query-Profile";
+    static final String PROFILE = QueryProfilerConfig.class.getName() + ".PROFILE";
+    private static final Logger log = LoggerFactory.getLogger(QueryProfilerConfig.class);
+
+    @Bean
+    public WebMvcConfigurer queryProfilerConfigurer(@Value("${API-URL}") String apiUrl,
+                                                    @Value("${rocket.profiler.max-statements:500}") int maxStatements,
+                                                    @Value("${rocket.profiler.n-plus-one-threshold:3}") int nPlusOneThreshold) {
+        AsyncHandlerInterceptor interceptor = new AsyncHandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                QueryProfile profile = (QueryProfile) request.getAttribute(PROFILE);
+                // La respuesta asíncrona vuelve a pasar por aquí con el perfil de la petición original
+                if (profile == null && request.getDispatcherType() == DispatcherType.REQUEST) {
+                    profile = new QueryProfile(request.getMethod() + " " + request.getRequestURI(),
+                            maxStatements, nPlusOneThreshold);
+                    request.setAttribute(PROFILE, profile);
+                }
+                QueryProfile.bind(profile);
+                return true;
+            }
+
+            @Override
+            public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                                       Object handler) {
+                // El hilo de Tomcat se libera; el perfil ya viaja con la tarea del pool
+                QueryProfile.bind(null);
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                        Exception ex) {
+                QueryProfile.bind(null);
+                QueryProfile profile = (QueryProfile) request.getAttribute(PROFILE);
+                if (profile == null) {
+                    return;
+                }
+                if (profile.hasFindings()) {
+                    log.warn("Sentencias sobrantes en {}", profile.summary());
+                } else if (log.isDebugEnabled()) {
+                    log.debug("Perfil de {}", profile.summary());
+                }
+                if (log.isDebugEnabled()) {
+                    for (String line : profile.details()) {
+                        log.debug("  {}", line);
+                    }
+                }
+            }
+        };
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor).addPathPatterns(apiUrl + "/**");
+            }
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package com.rocket.rocket.config;
+
+import com.rocket.rocket.utils.QueryProfile;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Anota cada sentencia de los mappers (ID, parámetros enlazados, duración y filas) en el
+ * {@link QueryProfile} de la petición en curso. Fuera de una petición perfilada no hace nada.
+ * <p>
+ * Solo para desarrollo y staging: se activa con rocket.profiler.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "rocket.profiler.enabled", havingValue = "true")
+@Intercepts({
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class QueryProfilerInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        QueryProfile profile = QueryProfile.current();
+        if (profile == null) {
+            return invocation.proceed();
+        }
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        Object parameter = invocation.getArgs()[1];
+        long start = System.nanoTime();
+        long rows = -1;
+        try {
+            Object result = invocation.proceed();
+            rows = rows(result);
+            return result;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            profile.record(statement.getId(), statement.getSqlCommandType() == SqlCommandType.SELECT,
+                    parameters(statement, parameter), nanos, rows);
+        }
+    }
+
+    // Mismos valores que enlaza DefaultParameterHandler, en el orden de los '?'
+    private static String parameters(MappedStatement statement, Object parameter) {
+        BoundSql boundSql = statement.getBoundSql(parameter);
+        List<ParameterMapping> mappings = boundSql.getParameterMappings();
+        if (mappings == null || mappings.isEmpty()) {
+            return "";
+        }
+        Configuration configuration = statement.getConfiguration();
+        MetaObject meta = null;
+        StringBuilder values = new StringBuilder();
+        for (ParameterMapping mapping : mappings) {
+            if (mapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            String property = mapping.getProperty();
+            Object value;
+            if (boundSql.hasAdditionalParameter(property)) {
+                value = boundSql.getAdditionalParameter(property);
+            } else if (parameter == null) {
+                value = null;
+            } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+                value = parameter;
+            } else {
+                if (meta == null) {
+                    meta = configuration.newMetaObject(parameter);
+                }
+                value = meta.getValue(property);
+            }
+            if (values.length() > 0) {
+                values.append(", ");
+            }
+            values.append(value);
+        }
+        return values.toString();
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Integer) {
+            // Con ExecutorType.BATCH el update devuelve un valor fijo; las filas solo se conocen al hacer flush
+            int count = (Integer) result;
+            return count == BatchExecutor.BATCH_UPDATE_RETURN_VALUE ? -1 : count;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,91 @@
+package com.rocket.rocket.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rocket.rocket.utils.TokenBucketLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Límite de peticiones por cliente (token bucket) para toda la API.
+ * <p>
+ * Cada cliente tiene una cubeta por presupuesto: búsquedas y listados (rocket.ratelimit.scan-paths),
+ * demás consultas GET y escrituras. Los valores de cada presupuesto son
+ * rocket.ratelimit.&lt;lookup|scan|write&gt;.per-second y .burst. Solo las API keys de rocket.ratelimit.api-keys
+ * tienen cubeta propia; con cualquier otra (o sin key) el cliente es la IP. Se desactiva con
+ * rocket.ratelimit.enabled=false.
+ * <p>
+ * Métricas: rocket.ratelimit.rejected y rocket.ratelimit.clients, con la etiqueta budget.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rocket.ratelimit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+    @Bean
+    public RateLimitInterceptor rateLimitInterceptor(Environment environment, ObjectMapper objectMapper,
+                                                     MeterRegistry registry,
+                                                     @Value("${API-URL}") String apiUrl,
+                                                     @Value("${rocket.ratelimit.max-clients:10000}") int maxClients,
+                                                     @Value("${rocket.ratelimit.scan-paths:/books/search/**,/books/all,/books/available,/loans/all,/loans/usuario/**,/students/all,/export/**}") List<String> scanPaths,
+                                                     @Value("${rocket.ratelimit.api-key-header:X-API-Key}") String apiKeyHeader,
+                                                     @Value("${rocket.ratelimit.api-keys:}") List<String> apiKeys,
+                                                     @Value("${rocket.ratelimit.trust-forwarded:false}") boolean trustForwarded) {
+        Map<RateLimitInterceptor.Budget, TokenBucketLimiter> limiters = new EnumMap<>(RateLimitInterceptor.Budget.class);
+        Map<RateLimitInterceptor.Budget, Counter> rejected = new EnumMap<>(RateLimitInterceptor.Budget.class);
+        for (RateLimitInterceptor.Budget budget : RateLimitInterceptor.Budget.values()) {
+            String name = budget.name().toLowerCase(Locale.ROOT);
+            double perSecond = environment.getProperty("rocket.ratelimit." + name + ".per-second", Double.class,
+                    budget.getDefaultPerSecond());
+            int burst = environment.getProperty("rocket.ratelimit." + name + ".burst", Integer.class,
+                    budget.getDefaultBurst());
+            TokenBucketLimiter limiter = new TokenBucketLimiter(perSecond, burst, maxClients);
+            limiters.put(budget, limiter);
+            rejected.put(budget, Counter.builder("rocket.ratelimit.rejected")
+                    .description("Peticiones rechazadas con 429 por superar el límite del cliente")
+                    .tag("budget", name)
+                    .register(registry));
+            Gauge.builder("rocket.ratelimit.clients", limiter, TokenBucketLimiter::size)
+                    .description("Clientes con cubeta en memoria")
+                    .tag("budget", name)
+                    .register(registry);
+        }
+        List<String> scanPatterns = new ArrayList<>();
+        for (String path : scanPaths) {
+            scanPatterns.add(apiUrl + path.trim());
+        }
+        Set<String> knownKeys = new HashSet<>();
+        for (String key : apiKeys) {
+            if (!key.trim().isEmpty()) {
+                knownKeys.add(key.trim());
+            }
+        }
+        return new RateLimitInterceptor(limiters, rejected, scanPatterns, apiKeyHeader, knownKeys, trustForwarded,
+                objectMapper);
+    }
+
+    @Bean
+    public WebMvcConfigurer rateLimitConfigurer(RateLimitInterceptor rateLimitInterceptor,
+                                                @Value("${API-URL}") String apiUrl) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(rateLimitInterceptor).addPathPatterns(apiUrl + "/**");
+            }
+        };
+    }
+}
@@ -0,0 +1,126 @@
+package com.rocket.rocket.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rocket.rocket.utils.CustomResponse;
+import com.rocket.rocket.utils.TokenBucketLimiter;
+import io.micrometer.core.instrument.Counter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita las peticiones de cada cliente con un token bucket por tipo de petición, antes de llegar a los pools.
+ * El cliente es la API key del encabezado si es una de las configuradas, si no la IP de origen: una key
+ * desconocida no abre una cubeta nueva. Al agotarse responde 429 con Retry-After.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    /**
+     * Presupuestos separados, con sus valores por defecto: consultas por ID, búsquedas y listados (scans) y escrituras
+     */
+    public enum Budget {
+        LOOKUP(50, 100),
+        SCAN(5, 10),
+        WRITE(10, 20);
+
+        private final double defaultPerSecond;
+        private final int defaultBurst;
+
+        Budget(double defaultPerSecond, int defaultBurst) {
+            this.defaultPerSecond = defaultPerSecond;
+            this.defaultBurst = defaultBurst;
+        }
+
+        public double getDefaultPerSecond() {
+            return defaultPerSecond;
+        }
+
+        public int getDefaultBurst() {
+            return defaultBurst;
+        }
+    }
+
+    private final Map<Budget, TokenBucketLimiter> limiters;
+    private final Map<Budget, Counter> rejected;
+    private final List<String> scanPatterns;
+    private final String apiKeyHeader;
+    private final Set<String> apiKeys;
+    private final boolean trustForwarded;
+    private final ObjectMapper objectMapper;
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimitInterceptor(Map<Budget, TokenBucketLimiter> limiters, Map<Budget, Counter> rejected,
+                                List<String> scanPatterns, String apiKeyHeader, Set<String> apiKeys,
+                                boolean trustForwarded, ObjectMapper objectMapper) {
+        this.limiters = new EnumMap<>(limiters);
+        this.rejected = new EnumMap<>(rejected);
+        this.scanPatterns = scanPatterns;
+        this.apiKeyHeader = apiKeyHeader;
+        this.apiKeys = apiKeys;
+        this.trustForwarded = trustForwarded;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // Las respuestas asíncronas vuelven a pasar por aquí al terminar; solo cuenta la petición original
+        if (request.getDispatcherType() != DispatcherType.REQUEST || CorsUtils.isPreFlightRequest(request)) {
+            return true;
+        }
+        Budget budget = budget(request);
+        long waitNanos = limiters.get(budget).tryAcquire(client(request));
+        if (waitNanos == 0) {
+            return true;
+        }
+        rejected.get(budget).increment();
+        long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new CustomResponse<>(null, 429,
+                "Demasiadas peticiones, intente de nuevo en " + retryAfter + " segundos", true));
+        return false;
+    }
+
+    Budget budget(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return Budget.WRITE;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String pattern : scanPatterns) {
+            if (pathMatcher.match(pattern, path)) {
+                return Budget.SCAN;
+            }
+        }
+        return Budget.LOOKUP;
+    }
+
+    private String client(HttpServletRequest request) {
+        String apiKey = request.getHeader(apiKeyHeader);
+        if (apiKey != null && apiKeys.contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        if (trustForwarded) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isEmpty()) {
+                int comma = forwarded.indexOf(',');
+                return "ip:" + (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,44 @@
+package com.rocket.rocket.config;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Envía las transacciones de solo lectura (@Transactional(readOnly = true)) a la réplica
+ * y todo lo demás al primario. Lo que corre sin transacción también va al primario,
+ * para que una lectura justo después de una escritura nunca vea datos atrasados.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route { PRIMARY, REPLICA }
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Crea el DataSource de la aplicación: el enrutador envuelto en un proxy que pide la conexión
+     * hasta la primera sentencia, cuando Spring ya marcó la transacción como de solo lectura
+     * @param primary Pool del primario
+     * @param replica Pool de la réplica
+     * @return DataSource enrutado
+     */
+    public static DataSource create(DataSource primary, DataSource replica) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.REPLICA : Route.PRIMARY;
+    }
+}
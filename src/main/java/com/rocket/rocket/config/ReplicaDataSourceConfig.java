@@ -0,0 +1,58 @@
+package com.rocket.rocket.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+
+/**
+ * Con rocket.datasource.replica.enabled=true la aplicación usa dos pools: el primario (spring.datasource.*)
+ * y la réplica (rocket.datasource.replica.*), enrutados con {@link ReadWriteRoutingDataSource}.
+ * Sin la propiedad se usa el DataSource único que configura Spring Boot.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rocket.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${rocket.datasource.replica.url}") String url,
+                                              @Value("${rocket.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${rocket.datasource.replica.password:${spring.datasource.password:}}") String password,
+                                              @Value("${rocket.datasource.replica.maximum-pool-size:10}") int maximumPoolSize) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        return ReadWriteRoutingDataSource.create(primary, replica);
+    }
+}
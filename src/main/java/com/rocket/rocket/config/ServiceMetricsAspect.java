@@ -0,0 +1,51 @@
+package com.rocket.rocket.config;
+
+import com.rocket.rocket.utils.CustomResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mide cada método público de los servicios (rocket.service.method, etiquetas class, method, code y exception).
+ * Como los servicios atrapan sus errores y responden con un CustomResponse, la etiqueta code
+ * lleva el código de ese CustomResponse (o "none" si el método devuelve otra cosa).
+ * Los endpoints ya los mide Spring Boot en http.server.requests, por URI y estado HTTP.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    private final MeterRegistry registry;
+
+    public ServiceMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * com.rocket.rocket.service..*(..)) && @within(org.springframework.stereotype.Service)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(registry);
+        String code = "none";
+        String exception = "none";
+        try {
+            Object result = joinPoint.proceed();
+            if (result instanceof CustomResponse) {
+                code = String.valueOf(((CustomResponse<?>) result).getCode());
+            }
+            return result;
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("rocket.service.method")
+                    .description("Latencia de los métodos de servicio")
+                    .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("code", code)
+                    .tag("exception", exception)
+                    .register(registry));
+        }
+    }
+}
@@ -1,91 +1,260 @@
 package com.rocket.rocket.controller;
 
+import com.rocket.rocket.config.BulkheadConfig;
 import com.rocket.rocket.model.Book;
+import com.rocket.rocket.model.BookImportResult;
+import com.rocket.rocket.service.BookImportService;
 import com.rocket.rocket.service.BookService;
+import com.rocket.rocket.service.CatalogSnapshots;
+import com.rocket.rocket.service.CollectionVersions;
+import com.rocket.rocket.service.IdempotencyService;
 import com.rocket.rocket.utils.CustomResponse;
+import com.rocket.rocket.utils.KeysetPage;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RequestMapping("${API-URL}/books")
 @RestController
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {"ETag", IdempotentResponses.REPLAYED_HEADER})
 public class BookController {
 
     private final BookService bookService;
+    private final BookImportService bookImportService;
+    private final CatalogSnapshots catalogSnapshots;
+    private final IdempotencyService idempotencyService;
+    private final CollectionVersions collectionVersions;
+    private final Executor writeExecutor;
+    private final Executor searchExecutor;
+    private final Executor exportExecutor;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, BookImportService bookImportService,
+                          CatalogSnapshots catalogSnapshots, IdempotencyService idempotencyService,
+                          CollectionVersions collectionVersions,
+                          @Qualifier("writeExecutor") Executor writeExecutor,
+                          @Qualifier("searchExecutor") Executor searchExecutor,
+                          @Qualifier("exportExecutor") Executor exportExecutor) {
         this.bookService = bookService;
+        this.bookImportService = bookImportService;
+        this.catalogSnapshots = catalogSnapshots;
+        this.idempotencyService = idempotencyService;
+        this.collectionVersions = collectionVersions;
+        this.writeExecutor = writeExecutor;
+        this.searchExecutor = searchExecutor;
+        this.exportExecutor = exportExecutor;
     }
 
-    // Obtener todos los libros
+    // Obtener todos los libros (after/limit: página por keyset, stream=true: streaming por cursor)
+    // Con If-None-Match igual a la versión actual responde 304 sin consultar la base de datos (sin ETag para
+    // las variantes que leen de la réplica mientras esté activa)
     @GetMapping("/all")
-    public ResponseEntity<CustomResponse<List<Book>>> getAllBooks() {
-        CustomResponse<List<Book>> response = bookService.findAll();
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+    public CompletableFuture<ResponseEntity<?>> getAllBooks(@RequestParam(required = false) Long after,
+                                                            @RequestParam(required = false) Integer limit,
+                                                            @RequestParam(defaultValue = "false") boolean stream,
+                                                            @RequestParam(required = false) String fields,
+                                                            WebRequest request) {
+        if (fields != null && (stream || after != null || limit != null)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new CustomResponse<>(null, 400,
+                    "El parámetro fields solo se admite en el listado completo", true)));
+        }
+        // La lista completa se lee del primario; páginas, fields= y streaming pueden ir a la réplica
+        boolean fullList = !stream && fields == null && after == null && limit == null;
+        String etag = fullList ? collectionVersions.etag(CollectionVersions.Collection.BOOKS)
+                : collectionVersions.replicaReadEtag(CollectionVersions.Collection.BOOKS);
+        if (request.checkNotModified(etag)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+        }
+        if (stream) {
+            // El cuerpo se escribe en el pool de streaming con su límite de tiempo
+            request.setAttribute(BulkheadConfig.STREAMING_REQUEST, true, RequestAttributes.SCOPE_REQUEST);
+            StreamingResponseBody body = bookService::streamAll;
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body));
+        }
+        if (fullList) {
+            CatalogSnapshots.Snapshot snapshot = catalogSnapshots.current(CatalogSnapshots.Catalog.ALL);
+            if (snapshot != null) {
+                return CompletableFuture.completedFuture(snapshotResponse(snapshot, request));
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            if (fields != null) {
+                CustomResponse<List<Map<String, Object>>> response = bookService.findAll(fields);
+                return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+            }
+            if (after != null || limit != null) {
+                CustomResponse<KeysetPage<Book>> response = bookService.findPage(after, limit);
+                return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+            }
+            CustomResponse<List<Book>> response = bookService.findAll();
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, exportExecutor);
     }
 
     // Obtener solo libros disponibles
     @GetMapping("/available")
-    public ResponseEntity<CustomResponse<List<Book>>> getAvailableBooks() {
-        CustomResponse<List<Book>> response = bookService.findAvailable();
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+    public CompletableFuture<ResponseEntity<?>> getAvailableBooks(WebRequest request) {
+        if (request.checkNotModified(collectionVersions.etag(CollectionVersions.Collection.BOOKS))) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+        }
+        CatalogSnapshots.Snapshot snapshot = catalogSnapshots.current(CatalogSnapshots.Catalog.AVAILABLE);
+        if (snapshot != null) {
+            return CompletableFuture.completedFuture(snapshotResponse(snapshot, request));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<List<Book>> response = bookService.findAvailable();
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, exportExecutor);
     }
 
     // Buscar libros por título
     @GetMapping("/search/title")
-    public ResponseEntity<CustomResponse<List<Book>>> searchBooksByTitle(@RequestParam String title) {
-        CustomResponse<List<Book>> response = bookService.findByTitle(title);
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+    public CompletableFuture<ResponseEntity<CustomResponse<List<Book>>>> searchBooksByTitle(@RequestParam String title,
+                                                                                            @RequestParam(defaultValue = "0") int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<List<Book>> response = bookService.findByTitle(title, limit);
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, searchExecutor);
     }
 
     // Buscar libros por autor
     @GetMapping("/search/author")
-    public ResponseEntity<CustomResponse<List<Book>>> searchBooksByAuthor(@RequestParam String author) {
-        CustomResponse<List<Book>> response = bookService.findByAuthor(author);
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+    public CompletableFuture<ResponseEntity<CustomResponse<List<Book>>>> searchBooksByAuthor(@RequestParam String author,
+                                                                                             @RequestParam(defaultValue = "0") int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<List<Book>> response = bookService.findByAuthor(author, limit);
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, searchExecutor);
     }
 
     // Obtener un libro por ID
     @GetMapping("/{id}")
-    public ResponseEntity<CustomResponse<Book>> getBookById(@PathVariable Long id) {
-        CustomResponse<Book> response = bookService.findById(id);
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+    public CompletableFuture<ResponseEntity<CustomResponse<Book>>> getBookById(@PathVariable Long id) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<Book> response = bookService.findById(id);
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, searchExecutor);
     }
 
-    // Crear un nuevo libro
+    // Crear un nuevo libro (con Idempotency-Key los reintentos no crean otro)
     @PostMapping("/")
-    public ResponseEntity<CustomResponse<Book>> createBook(@RequestBody Book book) {
-        CustomResponse<Book> response = bookService.save(book);
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+    public CompletableFuture<ResponseEntity<?>> createBook(@RequestBody Book book,
+                                                           @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (idempotencyKey != null) {
+                return IdempotentResponses.of(idempotencyService.execute(idempotencyKey, "POST /books/", book,
+                        () -> bookService.save(book)));
+            }
+            CustomResponse<Book> response = bookService.save(book);
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, writeExecutor);
+    }
+
+    // Importar libros desde un CSV (multipart, campo "file"); responde el resumen y los errores por fila
+    // Se devuelve un Callable para que corra en el pool de streaming con su límite de tiempo
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Callable<ResponseEntity<CustomResponse<BookImportResult>>> importBooks(@RequestParam("file") MultipartFile file,
+                                                                                  WebRequest request) {
+        request.setAttribute(BulkheadConfig.STREAMING_REQUEST, true, RequestAttributes.SCOPE_REQUEST);
+        return () -> {
+            CustomResponse<BookImportResult> response;
+            try (InputStream in = file.getInputStream()) {
+                response = bookImportService.importBooks(in);
+            }
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        };
     }
 
     // Actualizar un libro
     @PutMapping("/{id}")
-    public ResponseEntity<CustomResponse<Book>> updateBook(@PathVariable Long id, @RequestBody Book book) {
+    public CompletableFuture<ResponseEntity<CustomResponse<Book>>> updateBook(@PathVariable Long id, @RequestBody Book book) {
         book.setId(id);
-        CustomResponse<Book> response = bookService.update(book);
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<Book> response = bookService.update(book);
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, writeExecutor);
     }
 
     @PutMapping("/{id}/availability")
-    public ResponseEntity<CustomResponse<Book>> changeBookAvailability(@PathVariable Long id) {
-        CustomResponse<Book> response = bookService.toggleAvailability(id);
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+    public CompletableFuture<ResponseEntity<CustomResponse<Book>>> changeBookAvailability(@PathVariable Long id) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<Book> response = bookService.toggleAvailability(id);
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, writeExecutor);
     }
 
     // Marcar un libro como no disponible (soft delete)
     @DeleteMapping("/{id}")
-    public ResponseEntity<CustomResponse<String>> deleteBook(@PathVariable Long id) {
-        CustomResponse<String> response = bookService.delete(id);
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+    public CompletableFuture<ResponseEntity<CustomResponse<String>>> deleteBook(@PathVariable Long id) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<String> response = bookService.delete(id);
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, writeExecutor);
     }
     // Actualizar el stock de un libro
     @PutMapping("/{id}/stock")
-    public ResponseEntity<CustomResponse<Void>> updateStock(@PathVariable Long id, @RequestParam Integer stock) {
-        CustomResponse<Void> response = bookService.updateStock(id, stock);
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+    public CompletableFuture<ResponseEntity<CustomResponse<Void>>> updateStock(@PathVariable Long id, @RequestParam Integer stock) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<Void> response = bookService.updateStock(id, stock);
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, writeExecutor);
+    }
+
+    // Escribe la instantánea ya serializada tal cual; con Accept-Encoding: gzip envía la variante comprimida
+    private static ResponseEntity<byte[]> snapshotResponse(CatalogSnapshots.Snapshot snapshot, WebRequest request) {
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(snapshot.getCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(gzip ? snapshot.getGzip() : snapshot.getJson());
+    }
+
+    // RFC 7231 5.3.4: gzip (o x-gzip) con q > 0, o * con q > 0 si gzip no aparece; "gzip;q=0" lo rechaza
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.length() > 2 && param.substring(0, 2).equalsIgnoreCase("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = gzip == null ? q : Math.max(gzip, q);
+            } else if (coding.equals("*")) {
+                any = q;
+            }
+        }
+        double q = gzip != null ? gzip : any != null ? any : 0;
+        return q > 0;
     }
-}
\ No newline at end of file
+}
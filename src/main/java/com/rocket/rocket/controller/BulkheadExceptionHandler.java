@@ -0,0 +1,52 @@
+package com.rocket.rocket.controller;
+
+import com.rocket.rocket.utils.CustomResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Responde 503 cuando el pool de un tipo de petición está saturado o la petición
+ * esperó más que spring.mvc.async.request-timeout.
+ * <p>
+ * Una escritura que excede el límite sigue corriendo en su pool y puede confirmarse después de la respuesta,
+ * así que para POST, PUT y DELETE no se invita a reintentar (sin Retry-After): el resultado es desconocido.
+ */
+@RestControllerAdvice
+public class BulkheadExceptionHandler {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<CustomResponse<Void>> handleRejected(RejectedExecutionException e) {
+        return unavailable("El servidor está ocupado, intente de nuevo en unos segundos");
+    }
+
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    public ResponseEntity<CustomResponse<Void>> handleTimeout(AsyncRequestTimeoutException e,
+                                                              HttpServletRequest request) {
+        if (!isSafe(request.getMethod())) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new CustomResponse<>(503, "La operación tardó demasiado y no se sabe si se aplicó; "
+                            + "consulte el recurso antes de repetirla o reintente con el mismo Idempotency-Key", true));
+        }
+        return unavailable("La petición tardó demasiado, intente de nuevo en unos segundos");
+    }
+
+    private static boolean isSafe(String method) {
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+
+    private static ResponseEntity<CustomResponse<Void>> unavailable(String message) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(new CustomResponse<>(503, message, true));
+    }
+}
@@ -0,0 +1,113 @@
+package com.rocket.rocket.controller;
+
+import com.rocket.rocket.config.BulkheadConfig;
+import com.rocket.rocket.service.BookService;
+import com.rocket.rocket.service.LoanService;
+import com.rocket.rocket.service.StudentService;
+import com.rocket.rocket.utils.CustomResponse;
+import com.rocket.rocket.utils.ExportStreams;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Exportaciones en CSV o NDJSON escritas fila por fila en el pool de streaming (memoria constante)
+@RestController
+@RequestMapping("${API-URL}/export")
+@CrossOrigin(origins = "*", exposedHeaders = "Content-Disposition")
+public class ExportController {
+
+    private static final List<String> ESTADOS = Collections.unmodifiableList(
+            Arrays.asList("ACTIVO", "VENCIDO", "DEVUELTO", "CANCELADO"));
+
+    private final LoanService loanService;
+    private final BookService bookService;
+    private final StudentService studentService;
+
+    public ExportController(LoanService loanService, BookService bookService, StudentService studentService) {
+        this.loanService = loanService;
+        this.bookService = bookService;
+        this.studentService = studentService;
+    }
+
+    // Préstamos con estudiante y libro; desde/hasta filtran la fecha de préstamo (inclusive)
+    @GetMapping("/loans")
+    public ResponseEntity<?> exportLoans(@RequestParam(defaultValue = "csv") String format,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                         @RequestParam(required = false) String estado,
+                                         WebRequest request) {
+        ExportStreams.Format exportFormat;
+        try {
+            exportFormat = ExportStreams.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            return badRequest("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        if (estado != null && !ESTADOS.contains(estado)) {
+            return badRequest("Estado desconocido '" + estado + "'. Estados disponibles: " + String.join(", ", ESTADOS));
+        }
+        StreamingResponseBody body = out -> loanService.exportLoans(out, exportFormat, desde, hasta, estado);
+        return attachment("prestamos", exportFormat, body, request);
+    }
+
+    // Libros; desde/hasta filtran la fecha de registro (inclusive)
+    @GetMapping("/books")
+    public ResponseEntity<?> exportBooks(@RequestParam(defaultValue = "csv") String format,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                         @RequestParam(required = false) Boolean disponible,
+                                         WebRequest request) {
+        ExportStreams.Format exportFormat;
+        try {
+            exportFormat = ExportStreams.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            return badRequest("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        StreamingResponseBody body = out -> bookService.exportBooks(out, exportFormat, desde, hasta, disponible);
+        return attachment("libros", exportFormat, body, request);
+    }
+
+    @GetMapping("/students")
+    public ResponseEntity<?> exportStudents(@RequestParam(defaultValue = "csv") String format, WebRequest request) {
+        ExportStreams.Format exportFormat;
+        try {
+            exportFormat = ExportStreams.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+        StreamingResponseBody body = out -> studentService.exportStudents(out, exportFormat);
+        return attachment("estudiantes", exportFormat, body, request);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> attachment(String name, ExportStreams.Format format,
+                                                                    StreamingResponseBody body, WebRequest request) {
+        request.setAttribute(BulkheadConfig.STREAMING_REQUEST, true, RequestAttributes.SCOPE_REQUEST);
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename(name + "-" + LocalDate.now() + "." + format.getExtension())
+                .build();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(body);
+    }
+
+    private static ResponseEntity<CustomResponse<Void>> badRequest(String message) {
+        return ResponseEntity.badRequest().body(new CustomResponse<>(400, message, true));
+    }
+}
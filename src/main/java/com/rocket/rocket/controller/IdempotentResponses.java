@@ -0,0 +1,29 @@
+package com.rocket.rocket.controller;
+
+import com.rocket.rocket.service.IdempotencyService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Respuestas de las escrituras que recibieron Idempotency-Key
+ */
+final class IdempotentResponses {
+
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private IdempotentResponses() {
+    }
+
+    /**
+     * @param outcome Resultado de {@link IdempotencyService#execute}
+     * @return El JSON guardado tal cual, con Idempotent-Replayed: true si es una repetición
+     */
+    static ResponseEntity<byte[]> of(IdempotencyService.Outcome outcome) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(outcome.getCode())
+                .contentType(MediaType.APPLICATION_JSON);
+        if (outcome.isReplayed()) {
+            builder.header(REPLAYED_HEADER, "true");
+        }
+        return builder.body(outcome.getBody());
+    }
+}
@@ -1,75 +1,172 @@
 package com.rocket.rocket.controller;
 
+import com.rocket.rocket.config.BulkheadConfig;
 import com.rocket.rocket.model.Loan;
+import com.rocket.rocket.model.LoanBatchResult;
+import com.rocket.rocket.service.CollectionVersions;
+import com.rocket.rocket.service.IdempotencyService;
 import com.rocket.rocket.service.LoanService;
 import com.rocket.rocket.utils.CustomResponse;
+import com.rocket.rocket.utils.KeysetPage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
 @RequestMapping("${API-URL}/loans")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {"ETag", IdempotentResponses.REPLAYED_HEADER})
 public class LoanController {
 
     private final LoanService loanService;
+    private final IdempotencyService idempotencyService;
+    private final CollectionVersions collectionVersions;
+    private final Executor writeExecutor;
+    private final Executor searchExecutor;
+    private final Executor exportExecutor;
 
     @Autowired
-    public LoanController(LoanService loanService) {
+    public LoanController(LoanService loanService, IdempotencyService idempotencyService,
+                          CollectionVersions collectionVersions,
+                          @Qualifier("writeExecutor") Executor writeExecutor,
+                          @Qualifier("searchExecutor") Executor searchExecutor,
+                          @Qualifier("exportExecutor") Executor exportExecutor) {
         this.loanService = loanService;
+        this.idempotencyService = idempotencyService;
+        this.collectionVersions = collectionVersions;
+        this.writeExecutor = writeExecutor;
+        this.searchExecutor = searchExecutor;
+        this.exportExecutor = exportExecutor;
     }
 
+    // Sin parámetros: lista completa. Con after/limit: página por keyset. Con stream=true: streaming por cursor
+    // Con If-None-Match igual a la versión actual responde 304 sin consultar la base de datos (sin ETag para
+    // las variantes que leen de la réplica mientras esté activa)
     @GetMapping("/all")
-    public ResponseEntity<CustomResponse<List<Loan>>> getAllLoans() {
-        CustomResponse<List<Loan>> response = loanService.getAllLoans();
-        return ResponseEntity.status(response.getCode()).body(response);
+    public CompletableFuture<ResponseEntity<?>> getAllLoans(@RequestParam(required = false) String after,
+                                                            @RequestParam(required = false) Integer limit,
+                                                            @RequestParam(defaultValue = "false") boolean stream,
+                                                            @RequestParam(required = false) String fields,
+                                                            WebRequest request) {
+        if (fields != null && (stream || after != null || limit != null)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new CustomResponse<>(null, 400,
+                    "El parámetro fields solo se admite en el listado completo", true)));
+        }
+        // La lista completa se lee del primario; páginas, fields= y streaming pueden ir a la réplica
+        boolean fullList = !stream && fields == null && after == null && limit == null;
+        String etag = fullList ? collectionVersions.etag(CollectionVersions.Collection.LOANS)
+                : collectionVersions.replicaReadEtag(CollectionVersions.Collection.LOANS);
+        if (request.checkNotModified(etag)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+        }
+        if (stream) {
+            // El cuerpo se escribe en el pool de streaming con su límite de tiempo
+            request.setAttribute(BulkheadConfig.STREAMING_REQUEST, true, RequestAttributes.SCOPE_REQUEST);
+            StreamingResponseBody body = loanService::streamAllLoans;
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            if (fields != null) {
+                CustomResponse<List<Map<String, Object>>> response = loanService.getAllLoans(fields);
+                return ResponseEntity.status(response.getCode()).body(response);
+            }
+            if (after != null || limit != null) {
+                CustomResponse<KeysetPage<Loan>> response = loanService.getLoansPage(after, limit);
+                return ResponseEntity.status(response.getCode()).body(response);
+            }
+            CustomResponse<List<Loan>> response = loanService.getAllLoans();
+            return ResponseEntity.status(response.getCode()).body(response);
+        }, exportExecutor);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<CustomResponse<Loan>> getLoanById(@PathVariable Long id) {
-        CustomResponse<Loan> response = loanService.getLoanById(id);
-        return ResponseEntity.status(response.getCode()).body(response);
+    public CompletableFuture<ResponseEntity<CustomResponse<Loan>>> getLoanById(@PathVariable Long id) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<Loan> response = loanService.getLoanById(id);
+            return ResponseEntity.status(response.getCode()).body(response);
+        }, searchExecutor);
     }
 
 
     @GetMapping("/usuario/{nombre}")
-    public ResponseEntity<CustomResponse<List<Loan>>> getLoansByNombreUsuario(@PathVariable String nombre) {
-        CustomResponse<List<Loan>> response = loanService.getLoansByStudentName(nombre);
-        return ResponseEntity.status(response.getCode()).body(response);
+    public CompletableFuture<ResponseEntity<CustomResponse<List<Loan>>>> getLoansByNombreUsuario(@PathVariable String nombre) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<List<Loan>> response = loanService.getLoansByStudentName(nombre);
+            return ResponseEntity.status(response.getCode()).body(response);
+        }, searchExecutor);
     }
 
+    // Con Idempotency-Key los reintentos reciben la respuesta del primer registro sin volver a ejecutarlo
     @PostMapping("/register")
-    public ResponseEntity<CustomResponse<Loan>> createLoan(@RequestBody Loan loan) {
-        CustomResponse<Loan> response = loanService.crearLoan(loan);
-        return ResponseEntity.status(response.getCode()).body(response);
+    public CompletableFuture<ResponseEntity<?>> createLoan(@RequestBody Loan loan,
+                                                           @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (idempotencyKey != null) {
+                return IdempotentResponses.of(idempotencyService.execute(idempotencyKey, "POST /loans/register", loan,
+                        () -> loanService.crearLoan(loan)));
+            }
+            CustomResponse<Loan> response = loanService.crearLoan(loan);
+            return ResponseEntity.status(response.getCode()).body(response);
+        }, writeExecutor);
+    }
+
+    // Registro masivo: una transacción y resultado por préstamo
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<?>> createLoans(@RequestBody List<Loan> loans,
+                                                            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (idempotencyKey != null) {
+                return IdempotentResponses.of(idempotencyService.execute(idempotencyKey, "POST /loans/batch", loans,
+                        () -> loanService.crearLoans(loans)));
+            }
+            CustomResponse<List<LoanBatchResult>> response = loanService.crearLoans(loans);
+            return ResponseEntity.status(response.getCode()).body(response);
+        }, writeExecutor);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<CustomResponse<Loan>> updateLoan(
+    public CompletableFuture<ResponseEntity<CustomResponse<Loan>>> updateLoan(
             @PathVariable Long id,
             @RequestBody Loan loan) {
         loan.setId(id); // Asegurar que el ID del path coincide con el del body
-        CustomResponse<Loan> response = loanService.actualizarLoan(loan);
-        return ResponseEntity.status(response.getCode()).body(response);
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<Loan> response = loanService.actualizarLoan(loan);
+            return ResponseEntity.status(response.getCode()).body(response);
+        }, writeExecutor);
     }
 
     @PatchMapping("/{id}/devolver")
-    public ResponseEntity<CustomResponse<Loan>> returnBook(@PathVariable Long id) {
-        CustomResponse<Loan> response = loanService.registrarDevolucion(id);
-        return ResponseEntity.status(response.getCode()).body(response);
+    public CompletableFuture<ResponseEntity<CustomResponse<Loan>>> returnBook(@PathVariable Long id) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<Loan> response = loanService.registrarDevolucion(id);
+            return ResponseEntity.status(response.getCode()).body(response);
+        }, writeExecutor);
     }
 
     @PatchMapping("/{id}/cancelar")
-    public ResponseEntity<CustomResponse<Loan>> cancelLoan(@PathVariable Long id) {
-        CustomResponse<Loan> response = loanService.cancelarPrestamo(id);
-        return ResponseEntity.status(response.getCode()).body(response);
+    public CompletableFuture<ResponseEntity<CustomResponse<Loan>>> cancelLoan(@PathVariable Long id) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<Loan> response = loanService.cancelarPrestamo(id);
+            return ResponseEntity.status(response.getCode()).body(response);
+        }, writeExecutor);
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<CustomResponse<Void>> deleteLoan(@PathVariable Long id) {
-        CustomResponse<Void> response = loanService.eliminarLoan(id);
-        return ResponseEntity.status(response.getCode()).body(response);
+    public CompletableFuture<ResponseEntity<CustomResponse<Void>>> deleteLoan(@PathVariable Long id) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<Void> response = loanService.eliminarLoan(id);
+            return ResponseEntity.status(response.getCode()).body(response);
+        }, writeExecutor);
     }
 }
\ No newline at end of file
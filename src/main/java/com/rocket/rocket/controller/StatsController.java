@@ -0,0 +1,37 @@
+package com.rocket.rocket.controller;
+
+import com.rocket.rocket.model.LoanStats;
+import com.rocket.rocket.service.LoanStatistics;
+import com.rocket.rocket.utils.CustomResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Estadísticas de préstamos leídas de los contadores en memoria, sin consultar PRESTAMOS
+@RequestMapping("${API-URL}/stats")
+@RestController
+@CrossOrigin(origins = "*")
+public class StatsController {
+
+    private final LoanStatistics loanStatistics;
+    private final Executor searchExecutor;
+
+    public StatsController(LoanStatistics loanStatistics, @Qualifier("searchExecutor") Executor searchExecutor) {
+        this.loanStatistics = loanStatistics;
+        this.searchExecutor = searchExecutor;
+    }
+
+    // Totales por estado, préstamos por día de los últimos `dias` días y los `top` libros y estudiantes con más préstamos
+    @GetMapping
+    public CompletableFuture<ResponseEntity<CustomResponse<LoanStats>>> getStats(@RequestParam(defaultValue = "30") int dias,
+                                                                                 @RequestParam(defaultValue = "10") int top) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<LoanStats> response = loanStatistics.getStats(dias, top);
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, searchExecutor);
+    }
+}
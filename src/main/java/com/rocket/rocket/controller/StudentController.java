@@ -1,65 +1,102 @@
 package com.rocket.rocket.controller;
 
 import com.rocket.rocket.model.Student;
+import com.rocket.rocket.service.IdempotencyService;
 import com.rocket.rocket.service.StudentService;
 import com.rocket.rocket.utils.CustomResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RequestMapping("${API-URL}/students")
 @RestController
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = IdempotentResponses.REPLAYED_HEADER)
 public class StudentController {
 
     private final StudentService studentService;
+    private final IdempotencyService idempotencyService;
+    private final Executor writeExecutor;
+    private final Executor searchExecutor;
+    private final Executor exportExecutor;
 
-    public StudentController(StudentService studentService) {
+    public StudentController(StudentService studentService, IdempotencyService idempotencyService,
+                             @Qualifier("writeExecutor") Executor writeExecutor,
+                             @Qualifier("searchExecutor") Executor searchExecutor,
+                             @Qualifier("exportExecutor") Executor exportExecutor) {
         this.studentService = studentService;
+        this.idempotencyService = idempotencyService;
+        this.writeExecutor = writeExecutor;
+        this.searchExecutor = searchExecutor;
+        this.exportExecutor = exportExecutor;
     }
 
     // Obtener todos los estudiantes
     @GetMapping("/all")
-    public ResponseEntity<CustomResponse<List<Student>>> getAllStudents() {
-        CustomResponse<List<Student>> response = studentService.findAll();
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+    public CompletableFuture<ResponseEntity<?>> getAllStudents(@RequestParam(required = false) String fields) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (fields != null) {
+                CustomResponse<List<Map<String, Object>>> response = studentService.findAll(fields);
+                return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+            }
+            CustomResponse<List<Student>> response = studentService.findAll();
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, exportExecutor);
     }
 
     // Obtener estudiante por matrícula
     @GetMapping("/get-by-matricula/{matricula}")
-    public ResponseEntity<CustomResponse<Student>> getStudentByMatricula(@PathVariable String matricula) {
-        CustomResponse<Student> response = studentService.findByMatricula(matricula);
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+    public CompletableFuture<ResponseEntity<CustomResponse<Student>>> getStudentByMatricula(@PathVariable String matricula) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<Student> response = studentService.findByMatricula(matricula);
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, searchExecutor);
     }
 
     // Obtener estudiante por email
     @GetMapping("/get-by-email/{email}")
-    public ResponseEntity<CustomResponse<List<Student>>> getStudentsByEmailLike(@PathVariable String email) {
-        CustomResponse<List<Student>> response = studentService.findByEmailLike(email);
-        return ResponseEntity.status(response.getCode()).body(response);
+    public CompletableFuture<ResponseEntity<CustomResponse<List<Student>>>> getStudentsByEmailLike(@PathVariable String email) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<List<Student>> response = studentService.findByEmailLike(email);
+            return ResponseEntity.status(response.getCode()).body(response);
+        }, searchExecutor);
     }
 
-    // Registrar estudiante
+    // Registrar estudiante (con Idempotency-Key los reintentos no crean otro)
     @PostMapping("/register")
-    public ResponseEntity<CustomResponse<Student>> registerStudent(@RequestBody Student student) {
-        CustomResponse<Student> response = studentService.save(student);
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+    public CompletableFuture<ResponseEntity<?>> registerStudent(@RequestBody Student student,
+                                                                @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (idempotencyKey != null) {
+                return IdempotentResponses.of(idempotencyService.execute(idempotencyKey, "POST /students/register", student,
+                        () -> studentService.save(student)));
+            }
+            CustomResponse<Student> response = studentService.save(student);
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, writeExecutor);
     }
 
     // Actualizar estudiante
     @PutMapping("/update/{id}")
-    public ResponseEntity<CustomResponse<Student>> updateStudent(@PathVariable Long id, @RequestBody Student student) {
+    public CompletableFuture<ResponseEntity<CustomResponse<Student>>> updateStudent(@PathVariable Long id, @RequestBody Student student) {
         student.setId(id);
-        CustomResponse<Student> response = studentService.update(student);
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<Student> response = studentService.update(student);
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, writeExecutor);
     }
 
     // Eliminar estudiante
     @DeleteMapping("/delete/{id}")
-    public ResponseEntity<CustomResponse<String>> deleteStudent(@PathVariable Long id) {
-        CustomResponse<String> response = studentService.delete(id);
-        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+    public CompletableFuture<ResponseEntity<CustomResponse<String>>> deleteStudent(@PathVariable Long id) {
+        return CompletableFuture.supplyAsync(() -> {
+            CustomResponse<String> response = studentService.delete(id);
+            return new ResponseEntity<>(response, HttpStatus.valueOf(response.getCode()));
+        }, writeExecutor);
     }
 }
\ No newline at end of file
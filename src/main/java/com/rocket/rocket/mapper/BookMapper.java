@@ -2,13 +2,23 @@ package com.rocket.rocket.mapper;
 
 import com.rocket.rocket.model.Book;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface BookMapper {
     Book findById(Long id);
+    List<Book> findByIds(@Param("ids") Collection<Long> ids);
     List<Book> findAll();
+    List<Book> findAllFields(@Param("columns") Collection<String> columns);
+    List<Book> findPage(@Param("afterId") Long afterId, @Param("limit") int limit);
+    Cursor<Book> streamAll();
+    Cursor<Book> streamExport(@Param("desde") LocalDate desde, @Param("antesDe") LocalDate antesDe,
+                              @Param("disponible") Boolean disponible);
     void insertBook(Book libro);
+    void insertImportedBook(Book libro);
     void updateBook(Book libro);
 
     List<Book> findByTitle(@Param("titulo") String title);
@@ -16,4 +26,7 @@ public interface BookMapper {
     List<Book> findByAvailability(@Param("disponible") Boolean available);
     void updateAvailability(@Param("id") Long id, @Param("disponible") Boolean available);
     void addStock(@Param("id") Long id, @Param("amount") Integer amount);
+    int decrementStock(@Param("id") Long id);
+    int decrementStockBy(@Param("id") Long id, @Param("cantidad") int cantidad);
+    int incrementStock(@Param("id") Long id);
 }
\ No newline at end of file
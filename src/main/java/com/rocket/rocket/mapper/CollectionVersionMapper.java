@@ -0,0 +1,8 @@
+package com.rocket.rocket.mapper;
+
+import org.apache.ibatis.annotations.Param;
+
+public interface CollectionVersionMapper {
+    Long findVersion(@Param("coleccion") String coleccion);
+    int increment(@Param("coleccion") String coleccion);
+}
@@ -0,0 +1,12 @@
+package com.rocket.rocket.mapper;
+
+import com.rocket.rocket.model.IdempotencyRecord;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyMapper {
+    IdempotencyRecord findByClave(@Param("clave") String clave);
+    void insertRecord(IdempotencyRecord record);
+    int deleteOlderThan(@Param("antesDe") LocalDateTime antesDe);
+}
@@ -1,20 +1,38 @@
 package com.rocket.rocket.mapper;
 
 import com.rocket.rocket.model.Loan;
+import com.rocket.rocket.model.LoanAdmission;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface LoanMapper {
     Loan findById(Long id);
     Loan findByIdWithDetails(Long id);
+    List<Loan> findByIdsWithDetails(@Param("ids") Collection<Long> ids);
     List<Loan> findAll();
     List<Loan> findAllWithDetails();
+    List<Loan> findAllFields(@Param("columns") Collection<String> columns,
+                             @Param("joinUsuario") boolean joinUsuario, @Param("joinLibro") boolean joinLibro);
+    List<Loan> findPageWithDetails(@Param("afterFecha") LocalDate afterFecha, @Param("afterId") Long afterId,
+                                   @Param("limit") int limit);
+    Cursor<Loan> streamAllWithDetails();
+    Cursor<Loan> streamExport(@Param("desde") LocalDate desde, @Param("antesDe") LocalDate antesDe,
+                              @Param("estado") String estado);
+    Cursor<Loan> streamForStatistics();
     List<Loan> findByUsuarioIdWithDetails(Long usuarioId);
-    int countActiveLoansByStudentId(Long studentId);
+    List<Loan> findActiveByUsuarioIds(@Param("ids") Collection<Long> ids);
+    List<Loan> findByUsuarioIdsWithDetails(@Param("ids") Collection<Long> ids);
+    LoanAdmission findAdmission(@Param("usuarioId") Long usuarioId, @Param("libroId") Long libroId);
     void insertLoan(Loan prestamo);
     void updateLoan(Loan prestamo);
     void updateEstado(Long id, String estado);
+    int updateEstadoIfActive(@Param("id") Long id, @Param("estado") String estado);
+    List<Loan> findOverdueLoans(@Param("afterId") long afterId, @Param("limit") int limit);
+    int markOverdue(@Param("id") Long id);
     void deleteLoan(Long id);
     List<Loan> findByStudentNameWithDetails(String nombre);
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.rocket.rocket.mapper;
+
+import com.rocket.rocket.model.Notification;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface NotificationMapper {
+    void insertNotification(Notification notification);
+    int claimBatch(@Param("lote") String lote, @Param("excluirTipos") Collection<String> excluirTipos,
+                   @Param("limit") int limit);
+    int claimDigestBatch(@Param("lote") String lote, @Param("tipos") Collection<String> tipos,
+                         @Param("antesDe") LocalDateTime antesDe, @Param("limit") int limit);
+    List<Notification> findByLote(@Param("lote") String lote);
+    void markSent(@Param("id") Long id);
+    void markRetry(@Param("id") Long id, @Param("intentos") int intentos,
+                   @Param("proximoIntento") LocalDateTime proximoIntento, @Param("error") String error);
+    void markFailed(@Param("id") Long id, @Param("intentos") int intentos, @Param("error") String error);
+    int releaseStale(@Param("antesDe") LocalDateTime antesDe);
+}
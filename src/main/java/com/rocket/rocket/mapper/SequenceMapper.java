@@ -0,0 +1,7 @@
+package com.rocket.rocket.mapper;
+
+import org.apache.ibatis.annotations.Param;
+
+public interface SequenceMapper {
+    Long nextVal(@Param("sequence") String sequence);
+}
@@ -1,14 +1,20 @@
 package com.rocket.rocket.mapper;
 
 import com.rocket.rocket.model.Student;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface StudentMapper {
     Student findById(Long id);
+    List<Student> findByIds(@Param("ids") Collection<Long> ids);
     Student findByEmail(String email);
     Student findByMatricula(String matricula);
     List<Student> findAll();
+    Cursor<Student> streamAll();
+    List<Student> findAllFields(@Param("columns") Collection<String> columns);
     void insertStudent(Student student);
     void updateStudent(Student student);
     void deleteStudent(Long id);
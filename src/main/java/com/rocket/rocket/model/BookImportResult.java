@@ -0,0 +1,27 @@
+package com.rocket.rocket.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportResult {
+    private long filas;                 // Filas de datos leídas (sin encabezado ni líneas vacías)
+    private long importados;            // Libros insertados
+    private long rechazados;            // Filas con error de validación o rechazadas por la base de datos
+    private boolean erroresTruncados;   // true si hubo más errores de los que se listan
+    private List<RowError> errores = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long linea;             // Línea del archivo donde empieza la fila (el encabezado es la línea 1)
+        private String message;
+    }
+}
@@ -0,0 +1,19 @@
+package com.rocket.rocket.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    private String clave;                 // Valor del encabezado Idempotency-Key
+    private String endpoint;              // Por ejemplo "POST /loans/register"
+    private String huella;                // SHA-256 del cuerpo de la petición original
+    private Integer codigo;               // Código HTTP de la respuesta guardada
+    private String cuerpo;                // JSON de la respuesta guardada
+    private LocalDateTime fechaCreacion;
+}
@@ -15,7 +15,7 @@ public class Loan {
     private Long libroId;      // ID del libro prestado
     private LocalDate fechaPrestamo;
     private LocalDate fechaDevolucion;
-    private String estado;     // "ACTIVO", "DEVUELTO", "VENCIDO"
+    private String estado;     // "ACTIVO", "VENCIDO", "DEVUELTO", "CANCELADO"
 
     // Objetos relacionados (para joins)
     private Student usuario;   // Relación con el usuario que hace el préstamo
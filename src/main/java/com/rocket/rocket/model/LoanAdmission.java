@@ -0,0 +1,16 @@
+package com.rocket.rocket.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resumen de los préstamos activos de un estudiante, usado para decidir si puede pedir otro libro
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanAdmission {
+    private int activos;       // Préstamos activos del estudiante
+    private int mismoLibro;    // Préstamos activos del estudiante para el libro consultado
+}
@@ -0,0 +1,16 @@
+package com.rocket.rocket.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanBatchResult {
+    private int indice;        // Posición del préstamo en la lista recibida
+    private int code;          // 201 si se registró; 400 o 404 con el mismo significado que en /loans/register
+    private String message;
+    private Boolean error;
+    private Loan prestamo;     // Préstamo registrado (null si fue rechazado)
+}
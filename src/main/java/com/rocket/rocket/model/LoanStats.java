@@ -0,0 +1,33 @@
+package com.rocket.rocket.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanStats {
+    private long prestamos;                         // Préstamos registrados (sin contar los eliminados)
+    private long activos;                           // ACTIVO o VENCIDO
+    private long devueltos;
+    private long cancelados;
+    private Map<LocalDate, Long> prestamosPorDia;   // Por fecha de préstamo, incluye los días sin préstamos
+    private List<Ranking> librosPopulares;          // Libros con más préstamos
+    private List<Ranking> estudiantesActivos;       // Estudiantes con más préstamos
+    private LocalDateTime reconstruido;             // Última reconstrucción desde PRESTAMOS
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Ranking {
+        private Long id;
+        private String nombre;                      // Título del libro o nombre del estudiante
+        private long prestamos;
+    }
+}
@@ -0,0 +1,63 @@
+package com.rocket.rocket.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Notification {
+    public static final String CONFIRMACION_PRESTAMO = "CONFIRMACION_PRESTAMO";
+    public static final String RECORDATORIO_VENCIDO = "RECORDATORIO_VENCIDO";
+    public static final String CONFIRMACION_DEVOLUCION = "CONFIRMACION_DEVOLUCION";
+
+    private Long id;
+    private String tipo;                  // "CONFIRMACION_PRESTAMO", "CONFIRMACION_DEVOLUCION", "RECORDATORIO_VENCIDO"
+    private Long prestamoId;              // Préstamo al que se refiere el correo
+    private Long usuarioId;               // Estudiante destinatario
+    private String estado;                // "PENDIENTE", "EN_PROCESO", "ENVIADO", "FALLIDO"
+    private Integer intentos;             // Envíos fallidos hasta ahora
+    private LocalDateTime proximoIntento; // No se envía antes de esta fecha
+    private String ultimoError;
+    private LocalDateTime fechaCreacion;
+
+    /**
+     * Crea la notificación pendiente de confirmación para un préstamo recién registrado
+     * @param loan Préstamo registrado
+     * @return Notificación lista para insertarse en la bandeja de salida
+     */
+    public static Notification loanConfirmation(Loan loan) {
+        return pending(CONFIRMACION_PRESTAMO, loan);
+    }
+
+    /**
+     * Crea la notificación pendiente de recordatorio para un préstamo que acaba de vencer
+     * @param loan Préstamo vencido
+     * @return Notificación lista para insertarse en la bandeja de salida
+     */
+    public static Notification overdueReminder(Loan loan) {
+        return pending(RECORDATORIO_VENCIDO, loan);
+    }
+
+    /**
+     * Crea la notificación pendiente de una devolución (solo se envía dentro del resumen por estudiante)
+     * @param loan Préstamo devuelto
+     * @return Notificación lista para insertarse en la bandeja de salida
+     */
+    public static Notification returnConfirmation(Loan loan) {
+        return pending(CONFIRMACION_DEVOLUCION, loan);
+    }
+
+    private static Notification pending(String tipo, Loan loan) {
+        Notification notification = new Notification();
+        notification.setTipo(tipo);
+        notification.setPrestamoId(loan.getId());
+        notification.setUsuarioId(loan.getUsuarioId());
+        notification.setEstado("PENDIENTE");
+        notification.setIntentos(0);
+        return notification;
+    }
+}
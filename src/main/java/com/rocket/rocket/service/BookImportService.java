@@ -0,0 +1,293 @@
+package com.rocket.rocket.service;
+
+import com.rocket.rocket.mapper.BookMapper;
+import com.rocket.rocket.model.Book;
+import com.rocket.rocket.model.BookImportResult;
+import com.rocket.rocket.utils.BatchUpdates;
+import com.rocket.rocket.utils.CsvReader;
+import com.rocket.rocket.utils.CustomResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Importación masiva de libros desde un CSV con encabezado.
+ * <p>
+ * El archivo se lee registro por registro ({@link CsvReader}); las filas válidas se agrupan en bloques
+ * de rocket.import.batch-size que se insertan en un JDBC batch y se confirman cada uno en su propia
+ * transacción. Si la base de datos rechaza un bloque, sus filas se insertan una por una para reportar
+ * solo las que fallan. Los bloques confirmados se conservan aunque una fila posterior falle.
+ * <p>
+ * Columnas: titulo (obligatoria), autor, editorial, stock y disponible, en cualquier orden.
+ * <p>
+ * Métricas: rocket.import.chunk (timer por bloque), rocket.import.imported y rocket.import.rejected.
+ */
+@Service
+public class BookImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookImportService.class);
+
+    private static final List<String> COLUMNS = Collections.unmodifiableList(
+            Arrays.asList("titulo", "autor", "editorial", "stock", "disponible"));
+    private static final int TITULO = 0;
+    private static final int AUTOR = 1;
+    private static final int EDITORIAL = 2;
+    private static final int STOCK = 3;
+    private static final int DISPONIBLE = 4;
+    // Tamaño de TITULO, AUTOR y EDITORIAL en LIBROS
+    private static final int MAX_TEXT_LENGTH = 200;
+    private static final char BOM = '\uFEFF';
+
+    private final SqlSessionTemplate batchSession;
+    private final TransactionTemplate transactionTemplate;
+    private final BookSearchIndex searchIndex;
+    private final CollectionVersions collectionVersions;
+
+    private final Timer chunkTimer;
+    private final Counter imported;
+    private final Counter rejected;
+
+    @Value("${rocket.import.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${rocket.import.max-errors:1000}")
+    private int maxErrors = 1000;
+
+    public BookImportService(SqlSessionFactory sqlSessionFactory, PlatformTransactionManager transactionManager,
+                             BookSearchIndex searchIndex, CollectionVersions collectionVersions,
+                             MeterRegistry registry) {
+        this.batchSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.searchIndex = searchIndex;
+        this.collectionVersions = collectionVersions;
+        this.chunkTimer = Timer.builder("rocket.import.chunk")
+                .description("Duración de cada bloque de la importación de libros")
+                .register(registry);
+        this.imported = Counter.builder("rocket.import.imported")
+                .description("Libros insertados por importación")
+                .register(registry);
+        this.rejected = Counter.builder("rocket.import.rejected")
+                .description("Filas de importación rechazadas")
+                .register(registry);
+    }
+
+    /**
+     * Importa los libros de un CSV en UTF-8.
+     * @param in Contenido del archivo (no se cierra)
+     * @return CustomResponse con el resumen y los errores por fila (200),
+     *         encabezado inválido o archivo ilegible (400) o error (500).
+     *         En 400 y 500 el resumen indica lo que ya se había confirmado
+     */
+    public CustomResponse<BookImportResult> importBooks(InputStream in) {
+        BookImportResult result = new BookImportResult();
+        long started = System.nanoTime();
+        try {
+            CsvReader csv = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            List<String> header = csv.next();
+            if (header == null) {
+                return new CustomResponse<>(result, 400, "El archivo está vacío", true);
+            }
+            int[] positions = new int[COLUMNS.size()];
+            String headerError = readHeader(header, positions);
+            if (headerError != null) {
+                return new CustomResponse<>(result, 400, headerError, true);
+            }
+
+            List<Book> chunk = new ArrayList<>(batchSize);
+            List<Long> chunkLines = new ArrayList<>(batchSize);
+            List<String> row;
+            while ((row = csv.next()) != null) {
+                if (row.size() == 1 && row.get(0).trim().isEmpty()) {
+                    continue;
+                }
+                result.setFilas(result.getFilas() + 1);
+                try {
+                    chunk.add(toBook(row, positions, header.size()));
+                    chunkLines.add(csv.getRecordLine());
+                } catch (IllegalArgumentException e) {
+                    reject(result, csv.getRecordLine(), e.getMessage());
+                    continue;
+                }
+                if (chunk.size() >= batchSize) {
+                    insertChunk(chunk, chunkLines, result);
+                    chunk.clear();
+                    chunkLines.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                insertChunk(chunk, chunkLines, result);
+            }
+            return new CustomResponse<>(result, 200,
+                    "Se importaron " + result.getImportados() + " de " + result.getFilas() + " libros", false);
+        } catch (IOException e) {
+            return new CustomResponse<>(result, 400, "No se pudo leer el archivo: " + e.getMessage(), true);
+        } catch (Exception e) {
+            return new CustomResponse<>(result, 500, "Error al importar los libros: " + e.getMessage(), true);
+        } finally {
+            if (result.getImportados() > 0) {
+                // Los IDs se generan en la base de datos: el índice se reconstruye una vez al terminar
+                collectionVersions.touch(CollectionVersions.Collection.BOOKS);
+                searchIndex.rebuild();
+            }
+            log.info("Importación de libros: {} filas, {} importados, {} rechazados en {} ms",
+                    result.getFilas(), result.getImportados(), result.getRechazados(),
+                    (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    // Llena positions con la posición de cada columna conocida (-1 si no viene); devuelve el error o null
+    private static String readHeader(List<String> header, int[] positions) {
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            if (i == 0 && !name.isEmpty() && name.charAt(0) == BOM) {
+                name = name.substring(1);
+            }
+            int column = COLUMNS.indexOf(name);
+            if (column < 0) {
+                return "Columna desconocida '" + header.get(i) + "'. Columnas disponibles: " + String.join(", ", COLUMNS);
+            }
+            if (positions[column] >= 0) {
+                return "La columna '" + name + "' está repetida";
+            }
+            positions[column] = i;
+        }
+        if (positions[TITULO] < 0) {
+            return "Falta la columna obligatoria 'titulo'";
+        }
+        return null;
+    }
+
+    // Valida la fila con las mismas reglas por defecto que BookService.save (disponible = true)
+    private static Book toBook(List<String> row, int[] positions, int columns) {
+        if (row.size() != columns) {
+            throw new IllegalArgumentException("Se esperaban " + columns + " columnas y la fila tiene " + row.size());
+        }
+        Book book = new Book();
+        book.setTitulo(text(row, positions[TITULO], "titulo"));
+        if (book.getTitulo() == null) {
+            throw new IllegalArgumentException("El título es obligatorio");
+        }
+        book.setAutor(text(row, positions[AUTOR], "autor"));
+        book.setEditorial(text(row, positions[EDITORIAL], "editorial"));
+
+        String stock = text(row, positions[STOCK], "stock");
+        if (stock == null) {
+            book.setStock(0);
+        } else {
+            try {
+                book.setStock(Integer.valueOf(stock));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("El stock '" + stock + "' no es un número entero");
+            }
+            if (book.getStock() < 0) {
+                throw new IllegalArgumentException("El stock no puede ser negativo");
+            }
+        }
+
+        String disponible = text(row, positions[DISPONIBLE], "disponible");
+        if (disponible == null) {
+            book.setDisponible(true);
+        } else {
+            switch (disponible.toLowerCase(Locale.ROOT)) {
+                case "true": case "1": case "si": case "sí":
+                    book.setDisponible(true);
+                    break;
+                case "false": case "0": case "no":
+                    book.setDisponible(false);
+                    break;
+                default:
+                    throw new IllegalArgumentException("El valor de disponible '" + disponible
+                            + "' no es válido (true/false, 1/0, si/no)");
+            }
+        }
+        return book;
+    }
+
+    private static String text(List<String> row, int position, String column) {
+        if (position < 0) {
+            return null;
+        }
+        String value = row.get(position).trim();
+        if (value.isEmpty()) {
+            return null;
+        }
+        if (value.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("La columna '" + column + "' excede " + MAX_TEXT_LENGTH + " caracteres");
+        }
+        return value;
+    }
+
+    private void insertChunk(List<Book> chunk, List<Long> lines, BookImportResult result) {
+        Timer.Sample sample = Timer.start();
+        try {
+            int[] counts = transactionTemplate.execute(status -> {
+                BookMapper batchBooks = batchSession.getMapper(BookMapper.class);
+                for (Book book : chunk) {
+                    batchBooks.insertImportedBook(book);
+                }
+                return BatchUpdates.insertCounts(batchSession.flushStatements(), chunk.size());
+            });
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    result.setImportados(result.getImportados() + 1);
+                    imported.increment();
+                } else {
+                    reject(result, lines.get(i), "La base de datos no insertó la fila");
+                }
+            }
+        } catch (RuntimeException e) {
+            // El bloque completo se revirtió; una transacción por fila para encontrar las que fallan
+            log.warn("Bloque de importación rechazado ({} filas desde la línea {}), se reintenta fila por fila: {}",
+                    chunk.size(), lines.get(0), e.getMessage());
+            for (int i = 0; i < chunk.size(); i++) {
+                insertOne(chunk.get(i), lines.get(i), result);
+            }
+        } finally {
+            sample.stop(chunkTimer);
+        }
+    }
+
+    private void insertOne(Book book, long line, BookImportResult result) {
+        try {
+            transactionTemplate.execute(status -> {
+                batchSession.getMapper(BookMapper.class).insertImportedBook(book);
+                return batchSession.flushStatements();
+            });
+            result.setImportados(result.getImportados() + 1);
+            imported.increment();
+        } catch (RuntimeException e) {
+            reject(result, line, "La base de datos rechazó la fila: " + e.getMessage());
+        }
+    }
+
+    // Solo se listan los primeros rocket.import.max-errors errores; el contador incluye todos
+    private void reject(BookImportResult result, long line, String message) {
+        result.setRechazados(result.getRechazados() + 1);
+        rejected.increment();
+        if (result.getErrores().size() < maxErrors) {
+            result.getErrores().add(new BookImportResult.RowError(line, message));
+        } else {
+            result.setErroresTruncados(true);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.rocket.rocket.service;
+
+import com.rocket.rocket.mapper.BookMapper;
+import com.rocket.rocket.model.Book;
+import com.rocket.rocket.utils.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido de trigramas en memoria sobre título, autor y editorial de LIBROS.
+ * <p>
+ * Se construye al iniciar la aplicación y se actualiza después de cada alta o edición.
+ * Las búsquedas conservan la semántica del LIKE '%texto%' anterior, pero ignoran
+ * mayúsculas y acentos y no consultan Oracle. El índice solo guarda IDs y textos
+ * normalizados; los libros se resuelven con {@link EntityCache} para que el stock
+ * y la disponibilidad estén siempre al día.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndex.class);
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    public enum Field { TITULO, AUTOR, EDITORIAL }
+
+    private final BookMapper bookMapper;
+    private final EntityCache entityCache;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Texto normalizado de cada libro por campo
+    private final Map<Field, Map<Long, String>> documents = new HashMap<>();
+    // Trigrama -> IDs de libros que lo contienen, por campo
+    private final Map<Field, Map<String, Set<Long>>> postings = new HashMap<>();
+    private volatile boolean ready;
+
+    public BookSearchIndex(BookMapper bookMapper, EntityCache entityCache) {
+        this.bookMapper = bookMapper;
+        this.entityCache = entityCache;
+        for (Field field : Field.values()) {
+            documents.put(field, new HashMap<>());
+            postings.put(field, new HashMap<>());
+        }
+    }
+
+    /**
+     * Construye el índice completo a partir de LIBROS
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Book> books;
+        try {
+            books = bookMapper.findAll();
+        } catch (Exception e) {
+            // Sin índice las búsquedas siguen funcionando con la consulta LIKE
+            log.error("No se pudo construir el índice de búsqueda de libros: {}", e.getMessage());
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Field field : Field.values()) {
+                documents.get(field).clear();
+                postings.get(field).clear();
+            }
+            for (Book book : books) {
+                add(book);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Índice de búsqueda de libros construido con {} libros", books.size());
+    }
+
+    /**
+     * Agrega o reemplaza un libro en el índice después del commit de la transacción actual
+     * @param book Libro con título, autor y editorial vigentes
+     */
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(book.getId());
+                add(book);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * @return true si el índice ya se construyó y puede atender búsquedas
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Busca libros cuyo campo contenga el texto, sin importar mayúsculas ni acentos
+     * @param field Campo donde buscar
+     * @param query Texto a buscar
+     * @param limit Máximo de resultados (0 = sin límite)
+     * @return Libros encontrados, ordenados por relevancia y luego por el campo buscado
+     */
+    public List<Book> search(Field field, String query, int limit) {
+        String needle = normalize(query);
+        List<Long> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Long, String> docs = documents.get(field);
+            Set<Long> candidates = needle.length() < 3 ? docs.keySet() : candidates(field, needle);
+            for (Long id : candidates) {
+                String text = docs.get(id);
+                if (text != null && text.contains(needle)) {
+                    ids.add(id);
+                }
+            }
+            ids.sort(Comparator.comparingInt((Long id) -> rank(docs.get(id), needle))
+                    .thenComparing(docs::get)
+                    .thenComparing(id -> documents.get(Field.TITULO).get(id)));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (limit > 0 && ids.size() > limit) {
+            ids = ids.subList(0, limit);
+        }
+        return entityCache.findBooks(ids);
+    }
+
+    /**
+     * Normaliza un texto para el índice: minúsculas, sin acentos y con espacios compactados
+     * @param text Texto original
+     * @return Texto normalizado (cadena vacía si es null)
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("")
+                .toLowerCase(Locale.ROOT)
+                .trim()
+                .replaceAll("\\s+", " ");
+    }
+
+    // Intersección de las listas de los trigramas de la consulta, empezando por la más corta
+    private Set<Long> candidates(Field field, String needle) {
+        Map<String, Set<Long>> index = postings.get(field);
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : trigrams(needle)) {
+            Set<Long> ids = index.get(gram);
+            if (ids == null) {
+                return new HashSet<>();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    // Menor es mejor: coincidencia exacta, luego al inicio, luego al inicio de una palabra, luego en medio
+    private static int rank(String text, String needle) {
+        if (text.equals(needle)) {
+            return 0;
+        }
+        if (text.startsWith(needle)) {
+            return 1;
+        }
+        if (text.contains(" " + needle)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private void add(Book book) {
+        put(Field.TITULO, book.getId(), book.getTitulo());
+        put(Field.AUTOR, book.getId(), book.getAutor());
+        put(Field.EDITORIAL, book.getId(), book.getEditorial());
+    }
+
+    private void put(Field field, Long id, String value) {
+        String text = normalize(value);
+        documents.get(field).put(id, text);
+        Map<String, Set<Long>> index = postings.get(field);
+        for (String gram : trigrams(text)) {
+            index.computeIfAbsent(gram, g -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void remove(Long id) {
+        for (Field field : Field.values()) {
+            String text = documents.get(field).remove(id);
+            if (text == null) {
+                continue;
+            }
+            Map<String, Set<Long>> index = postings.get(field);
+            for (String gram : trigrams(text)) {
+                Set<Long> ids = index.get(gram);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        index.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(text.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
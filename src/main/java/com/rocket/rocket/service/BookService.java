@@ -1,19 +1,61 @@
 package com.rocket.rocket.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rocket.rocket.mapper.BookMapper;
 import com.rocket.rocket.model.Book;
 import com.rocket.rocket.utils.CustomResponse;
+import com.rocket.rocket.utils.ExportStreams;
+import com.rocket.rocket.utils.FieldSet;
+import com.rocket.rocket.utils.JsonStreams;
+import com.rocket.rocket.utils.KeysetPage;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class BookService {
 
+    // Campos que acepta fields= en el listado de libros
+    private static final FieldSet<Book> FIELDS = new FieldSet<Book>("id", "id", Book::getId)
+            .field("titulo", "titulo", Book::getTitulo)
+            .field("autor", "autor", Book::getAutor)
+            .field("editorial", "editorial", Book::getEditorial)
+            .field("stock", "stock", Book::getStock)
+            .field("disponible", "disponible", Book::getDisponible)
+            .field("fechaRegistro", "fecha_registro", Book::getFechaRegistro);
+
+    // Columnas de la exportación de libros (CSV y NDJSON)
+    private static final List<ExportStreams.Column<Book>> EXPORT_COLUMNS = ExportStreams.columns(
+            ExportStreams.column("id", Book::getId),
+            ExportStreams.column("titulo", Book::getTitulo),
+            ExportStreams.column("autor", Book::getAutor),
+            ExportStreams.column("editorial", Book::getEditorial),
+            ExportStreams.column("stock", Book::getStock),
+            ExportStreams.column("disponible", Book::getDisponible),
+            ExportStreams.column("fechaRegistro", Book::getFechaRegistro));
+
     private final BookMapper bookMapper;
+    private final ObjectMapper objectMapper;
+    private final EntityCache entityCache;
+    private final BookSearchIndex searchIndex;
+    private final CollectionVersions collectionVersions;
+    private final ReadCoalescer readCoalescer;
 
-    public BookService(BookMapper bookMapper) {
+    public BookService(BookMapper bookMapper, ObjectMapper objectMapper, EntityCache entityCache,
+                       BookSearchIndex searchIndex, CollectionVersions collectionVersions,
+                       ReadCoalescer readCoalescer) {
         this.bookMapper = bookMapper;
+        this.objectMapper = objectMapper;
+        this.entityCache = entityCache;
+        this.searchIndex = searchIndex;
+        this.collectionVersions = collectionVersions;
+        this.readCoalescer = readCoalescer;
     }
 
     /**
@@ -24,7 +66,7 @@ public class BookService {
      */
     public CustomResponse<Book> findById(Long id) {
         try {
-            Book book = bookMapper.findById(id);
+            Book book = entityCache.findBook(id);
             if (book != null) {
                 return new CustomResponse<>(book, 200, "Libro encontrado", false);
             } else {
@@ -37,12 +79,14 @@ public class BookService {
 
     /**
      * Obtiene todos los libros disponibles en el sistema.
+     * Las llamadas concurrentes comparten la misma consulta ({@link ReadCoalescer}).
      * @return CustomResponse con la lista de libros (200),
      *         lista vacía (404) o error (500)
      */
     public CustomResponse<List<Book>> findAll() {
         try {
-            List<Book> books = bookMapper.findAll();
+            List<Book> books = readCoalescer.execute("books.findAll", bookMapper::findAll,
+                    collectionVersions.version(CollectionVersions.Collection.BOOKS));
             if (books != null && !books.isEmpty()) {
                 return new CustomResponse<>(books, 200, "Libros obtenidos exitosamente", false);
             } else {
@@ -53,14 +97,96 @@ public class BookService {
         }
     }
 
+    /**
+     * Obtiene todos los libros leyendo de LIBROS solo las columnas pedidas.
+     * @param fields Campos separados por coma (el id siempre se incluye), por ejemplo "titulo,autor"
+     * @return CustomResponse con los libros con solo esos campos (200),
+     *         campo desconocido (400), lista vacía (404) o error (500)
+     */
+    @Transactional(readOnly = true)
+    public CustomResponse<List<Map<String, Object>>> findAll(String fields) {
+        try {
+            FieldSet<Book>.Selection selection;
+            try {
+                selection = FIELDS.parse(fields);
+            } catch (IllegalArgumentException e) {
+                return new CustomResponse<>(null, 400, e.getMessage(), true);
+            }
+            List<Book> books = bookMapper.findAllFields(selection.getColumns());
+            if (books != null && !books.isEmpty()) {
+                return new CustomResponse<>(selection.project(books), 200, "Libros obtenidos exitosamente", false);
+            } else {
+                return new CustomResponse<>(null, 404, "No hay libros disponibles", true);
+            }
+        } catch (Exception e) {
+            return new CustomResponse<>(null, 500, "Error interno en el servidor: " + e.getMessage(), true);
+        }
+    }
+
+    /**
+     * Obtiene una página de libros ordenada por ID.
+     * @param afterId ID del último libro de la página anterior (opcional)
+     * @param limit Tamaño de página (1 a 500, 50 si no se indica)
+     * @return CustomResponse con la página de libros (200),
+     *         límite inválido (400) o error (500)
+     */
+    @Transactional(readOnly = true)
+    public CustomResponse<KeysetPage<Book>> findPage(Long afterId, Integer limit) {
+        try {
+            int size = limit != null ? limit : KeysetPage.DEFAULT_LIMIT;
+            if (size < 1 || size > KeysetPage.MAX_LIMIT) {
+                return new CustomResponse<>(null, 400, "El límite debe estar entre 1 y " + KeysetPage.MAX_LIMIT, true);
+            }
+
+            List<Book> rows = bookMapper.findPage(afterId, size + 1);
+            KeysetPage<Book> page = KeysetPage.of(rows, size, b -> String.valueOf(b.getId()));
+            return new CustomResponse<>(page, 200, "Libros obtenidos exitosamente", false);
+        } catch (Exception e) {
+            return new CustomResponse<>(null, 500, "Error interno en el servidor: " + e.getMessage(), true);
+        }
+    }
+
+    /**
+     * Escribe todos los libros directamente en la respuesta usando un cursor de MyBatis.
+     * @param out Flujo de salida de la respuesta HTTP
+     * @throws IOException Si el cliente cierra la conexión
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(OutputStream out) throws IOException {
+        try (Cursor<Book> cursor = bookMapper.streamAll()) {
+            JsonStreams.writeResponse(objectMapper, out, cursor, 200, "Libros obtenidos exitosamente");
+        }
+    }
+
+    /**
+     * Exporta libros fila por fila con un cursor de MyBatis, sin cargar la lista en memoria
+     * @param out Flujo de salida de la respuesta HTTP
+     * @param format CSV o NDJSON
+     * @param desde Fecha de registro mínima (inclusive) o null
+     * @param hasta Fecha de registro máxima (inclusive) o null
+     * @param disponible Solo disponibles (true), solo no disponibles (false) o todos (null)
+     * @return Número de libros exportados
+     * @throws IOException Si el cliente cierra la conexión
+     */
+    @Transactional(readOnly = true)
+    public long exportBooks(OutputStream out, ExportStreams.Format format,
+                            LocalDate desde, LocalDate hasta, Boolean disponible) throws IOException {
+        try (Cursor<Book> cursor = bookMapper.streamExport(desde, hasta != null ? hasta.plusDays(1) : null, disponible)) {
+            return ExportStreams.write(objectMapper, out, format, EXPORT_COLUMNS, cursor);
+        }
+    }
+
     /**
      * Obtiene solo los libros marcados como disponibles.
+     * Las llamadas concurrentes comparten la misma consulta ({@link ReadCoalescer}).
      * @return CustomResponse con la lista de libros disponibles (200),
      *         lista vacía (404) o error (500)
      */
     public CustomResponse<List<Book>> findAvailable() {
         try {
-            List<Book> books = bookMapper.findByAvailability(true);
+            List<Book> books = readCoalescer.execute("books.findAvailable",
+                    () -> bookMapper.findByAvailability(true),
+                    collectionVersions.version(CollectionVersions.Collection.BOOKS));
             if (books != null && !books.isEmpty()) {
                 return new CustomResponse<>(books, 200, "Libros disponibles obtenidos exitosamente", false);
             } else {
@@ -73,13 +199,19 @@ public class BookService {
 
     /**
      * Busca libros que coincidan con un título específico.
+     * Usa el índice en memoria (sin distinguir acentos) y solo consulta Oracle si aún no está listo.
+     * Las búsquedas idénticas concurrentes comparten el resultado ({@link ReadCoalescer}).
      * @param title Título o parte del título a buscar
+     * @param limit Máximo de resultados (0 = sin límite)
      * @return CustomResponse con la lista de libros encontrados (200),
      *         no encontrados (404) o error (500)
      */
-    public CustomResponse<List<Book>> findByTitle(String title) {
+    public CustomResponse<List<Book>> findByTitle(String title, int limit) {
         try {
-            List<Book> books = bookMapper.findByTitle(title);
+            List<Book> books = readCoalescer.execute("books.findByTitle", () -> searchIndex.isReady()
+                            ? searchIndex.search(BookSearchIndex.Field.TITULO, title, limit)
+                            : limit(bookMapper.findByTitle(title), limit),
+                    title, limit, collectionVersions.version(CollectionVersions.Collection.BOOKS));
             if (books != null && !books.isEmpty()) {
                 return new CustomResponse<>(books, 200, "Libros encontrados por título", false);
             } else {
@@ -92,13 +224,17 @@ public class BookService {
 
     /**
      * Busca libros por nombre de autor.
+     * Usa el índice en memoria (sin distinguir acentos) y solo consulta Oracle si aún no está listo.
      * @param author Nombre del autor a buscar
+     * @param limit Máximo de resultados (0 = sin límite)
      * @return CustomResponse con la lista de libros del autor (200),
      *         no encontrados (404) o error (500)
      */
-    public CustomResponse<List<Book>> findByAuthor(String author) {
+    public CustomResponse<List<Book>> findByAuthor(String author, int limit) {
         try {
-            List<Book> books = bookMapper.findByAuthor(author);
+            List<Book> books = searchIndex.isReady()
+                    ? searchIndex.search(BookSearchIndex.Field.AUTOR, author, limit)
+                    : limit(bookMapper.findByAuthor(author), limit);
             if (books != null && !books.isEmpty()) {
                 return new CustomResponse<>(books, 200, "Libros encontrados por autor", false);
             } else {
@@ -123,6 +259,8 @@ public class BookService {
             }
 
             bookMapper.insertBook(book);
+            searchIndex.index(book);
+            collectionVersions.touch(CollectionVersions.Collection.BOOKS);
             return new CustomResponse<>(book, 201, "Libro creado exitosamente", false);
         } catch (Exception e) {
             return new CustomResponse<>(null, 500, "Error al guardar el libro: " + e.getMessage(), true);
@@ -138,10 +276,15 @@ public class BookService {
 
     public CustomResponse<Book> update(Book book) {
         try {
-            Book existingBook = bookMapper.findById(book.getId());
+            Book existingBook = entityCache.findBook(book.getId());
             if (existingBook != null) {
                 bookMapper.updateBook(book);
+                entityCache.evictBook(book.getId());
+                // Título, autor y editorial también aparecen en los préstamos
+                collectionVersions.touch(CollectionVersions.Collection.BOOKS);
+                collectionVersions.touch(CollectionVersions.Collection.LOANS);
                 Book updatedBook = bookMapper.findById(book.getId());
+                searchIndex.index(updatedBook);
                 return new CustomResponse<>(updatedBook, 200, "Libro actualizado exitosamente", false);
             } else {
                 return new CustomResponse<>(null, 404, "Libro no encontrado para actualizar", true);
@@ -164,6 +307,8 @@ public class BookService {
                 // Invertir el estado de disponibilidad
                 book.setDisponible(!book.getDisponible());
                 bookMapper.updateAvailability(id, book.getDisponible());
+                entityCache.evictBook(id);
+                collectionVersions.touch(CollectionVersions.Collection.BOOKS);
 
                 // Obtener el libro actualizado
                 Book updatedBook = bookMapper.findById(id);
@@ -196,13 +341,15 @@ public class BookService {
             }
 
             // Verificar si el libro existe antes de actualizar
-            Book existingBook = bookMapper.findById(id);
+            Book existingBook = entityCache.findBook(id);
             if (existingBook == null) {
                 return new CustomResponse<>(null, 404, "Libro no encontrado", true);
             }
 
             // Actualizar el stock
             bookMapper.addStock(id, stock);
+            entityCache.evictBook(id);
+            collectionVersions.touch(CollectionVersions.Collection.BOOKS);
 
             return new CustomResponse<>(null, 200, "Stock actualizado correctamente", false);
 
@@ -218,10 +365,12 @@ public class BookService {
      */
     public CustomResponse<String> delete(Long id) {
         try {
-            Book book = bookMapper.findById(id);
+            Book book = entityCache.findBook(id);
             if (book != null) {
                 // En lugar de eliminar, marcar como no disponible
                 bookMapper.updateAvailability(id, false);
+                entityCache.evictBook(id);
+                collectionVersions.touch(CollectionVersions.Collection.BOOKS);
                 return new CustomResponse<>("Libro marcado como no disponible", 200, "Libro desactivado", false);
             } else {
                 return new CustomResponse<>(null, 404, "Libro no encontrado", true);
@@ -230,4 +379,8 @@ public class BookService {
             return new CustomResponse<>(null, 500, "Error al desactivar el libro: " + e.getMessage(), true);
         }
     }
-}
\ No newline at end of file
+
+    private static List<Book> limit(List<Book> books, int limit) {
+        return books != null && limit > 0 && books.size() > limit ? books.subList(0, limit) : books;
+    }
+}
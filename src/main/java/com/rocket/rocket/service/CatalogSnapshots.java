@@ -0,0 +1,177 @@
+package com.rocket.rocket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rocket.rocket.model.Book;
+import com.rocket.rocket.utils.CustomResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respuestas ya serializadas (JSON y JSON con gzip) de los listados de libros más pedidos.
+ * <p>
+ * Cada instantánea guarda la versión de BOOKS ({@link CollectionVersions}) con la que se generó.
+ * Cuando la versión cambia (escrituras de libros, préstamos, devoluciones o importaciones) se regeneran
+ * en un hilo propio; mientras tanto {@link #current} devuelve null y el controlador responde con la
+ * consulta normal, así nunca se sirve un listado anterior a una escritura ya confirmada.
+ * <p>
+ * Se regeneran con {@link BookService#findAll()} y {@link BookService#findAvailable()}, que leen del primario
+ * sin transacción ({@link ReadCoalescer}): con la réplica una instantánea podría llevar la versión nueva
+ * y los datos de antes de la escritura.
+ */
+@Component
+public class CatalogSnapshots {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshots.class);
+
+    /**
+     * Listados con instantánea
+     */
+    public enum Catalog { ALL, AVAILABLE }
+
+    private final BookService bookService;
+    private final ObjectMapper objectMapper;
+    private final CollectionVersions collectionVersions;
+    private final Map<Catalog, AtomicReference<Snapshot>> snapshots = new EnumMap<>(Catalog.class);
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "catalog-snapshots");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${rocket.snapshots.enabled:true}")
+    private boolean enabled = true;
+
+    public CatalogSnapshots(BookService bookService, ObjectMapper objectMapper, CollectionVersions collectionVersions) {
+        this.bookService = bookService;
+        this.objectMapper = objectMapper;
+        this.collectionVersions = collectionVersions;
+        for (Catalog catalog : Catalog.values()) {
+            snapshots.put(catalog, new AtomicReference<>());
+        }
+        collectionVersions.onChange(CollectionVersions.Collection.BOOKS, this::schedule);
+    }
+
+    /**
+     * Genera las instantáneas iniciales
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        schedule();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param catalog Listado pedido
+     * @return Instantánea de la versión actual, o null si está desactivado o se está regenerando
+     */
+    public Snapshot current(Catalog catalog) {
+        if (!enabled) {
+            return null;
+        }
+        Snapshot snapshot = snapshots.get(catalog).get();
+        if (snapshot != null && snapshot.version == collectionVersions.version(CollectionVersions.Collection.BOOKS)) {
+            return snapshot;
+        }
+        schedule();
+        return null;
+    }
+
+    // Varias escrituras seguidas generan a lo más una regeneración en cola
+    private void schedule() {
+        if (enabled && scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::regenerate);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+    }
+
+    private void regenerate() {
+        // Una escritura que llegue desde aquí programa otra pasada
+        scheduled.set(false);
+        // La versión se lee antes de consultar el primario: los datos son al menos tan recientes como la versión
+        long version = collectionVersions.version(CollectionVersions.Collection.BOOKS);
+        if (version < 0) {
+            // Sin versión conocida no hay con qué invalidar; se genera cuando se lea VERSIONES_COLECCION
+            return;
+        }
+        for (Catalog catalog : Catalog.values()) {
+            Snapshot previous = snapshots.get(catalog).get();
+            if (previous != null && previous.version == version) {
+                continue;
+            }
+            CustomResponse<List<Book>> response = catalog == Catalog.ALL ? bookService.findAll() : bookService.findAvailable();
+            if (response.getCode() == 500) {
+                log.warn("No se pudo generar la instantánea {} de libros: {}", catalog, response.getMessage());
+                continue;
+            }
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(response);
+                snapshots.get(catalog).set(new Snapshot(version, response.getCode(), json, gzip(json)));
+            } catch (IOException e) {
+                log.warn("No se pudo serializar la instantánea {} de libros: {}", catalog, e.getMessage());
+            }
+        }
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024)) {
+            gzip.write(json);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Respuesta serializada de un listado; los arreglos se comparten y no se deben modificar
+     */
+    public static final class Snapshot {
+
+        private final long version;
+        private final int code;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        private Snapshot(long version, int code, byte[] json, byte[] gzip) {
+            this.version = version;
+            this.code = code;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzip() {
+            return gzip;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.rocket.rocket.service;
+
+import com.rocket.rocket.mapper.CollectionVersionMapper;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionHolder;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versión de cada colección que exponen los endpoints de listado, para responder con ETag.
+ * <p>
+ * La versión vive en la tabla VERSIONES_COLECCION, así todas las instancias comparten la misma numeración.
+ * Cada escritura que cambia lo que devolvería un listado la incrementa justo antes del commit, en la misma
+ * transacción (el candado de la fila dura solo el commit), y la instancia que escribió la ve de inmediato.
+ * Las demás instancias leen la tabla cada rocket.versions.poll-ms: hasta entonces pueden responder 304 o
+ * servir una instantánea de la versión anterior.
+ * <p>
+ * La versión local se lee antes que los datos, y los datos se leen del primario: una respuesta nunca lleva
+ * una versión más nueva que sus datos.
+ */
+@Component
+public class CollectionVersions {
+
+    private static final Logger log = LoggerFactory.getLogger(CollectionVersions.class);
+
+    public enum Collection { BOOKS, LOANS }
+
+    private final CollectionVersionMapper versionMapper;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final CollectionVersionMapper batchVersionMapper;
+    // -1 mientras no se haya podido leer la tabla
+    private final Map<Collection, AtomicLong> versions = new EnumMap<>(Collection.class);
+    private final Map<Collection, List<Runnable>> listeners = new EnumMap<>(Collection.class);
+    // Incrementos fuera de transacción que fallaron
+    private final Set<Collection> retry = ConcurrentHashMap.newKeySet();
+
+    @Value("${rocket.datasource.replica.enabled:false}")
+    private boolean replicaEnabled;
+
+    public CollectionVersions(CollectionVersionMapper versionMapper, SqlSessionFactory sqlSessionFactory) {
+        this.versionMapper = versionMapper;
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.batchVersionMapper = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH)
+                .getMapper(CollectionVersionMapper.class);
+        for (Collection collection : Collection.values()) {
+            versions.put(collection, new AtomicLong(-1));
+            listeners.put(collection, new CopyOnWriteArrayList<>());
+        }
+        refresh();
+    }
+
+    /**
+     * Marca la colección como modificada: la versión sube en el commit de la transacción actual
+     * (una sola vez por transacción) o de inmediato si no hay transacción
+     * @param collection Colección modificada
+     */
+    @SuppressWarnings("unchecked")
+    public void touch(Collection collection) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                apply(collection, increment(collection));
+            } catch (Exception e) {
+                // Los datos ya están confirmados: se reintenta en la siguiente lectura de la tabla
+                log.warn("No se pudo incrementar la versión de {}: {}", collection, e.getMessage());
+                retry.add(collection);
+            }
+            return;
+        }
+        Set<Collection> touched = (Set<Collection>) TransactionSynchronizationManager.getResource(this);
+        if (touched == null) {
+            Set<Collection> pending = EnumSet.noneOf(Collection.class);
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private final Map<Collection, Long> committed = new EnumMap<>(Collection.class);
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    for (Collection c : pending) {
+                        committed.put(c, increment(c));
+                    }
+                }
+
+                @Override
+                public void afterCommit() {
+                    committed.forEach(CollectionVersions.this::apply);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CollectionVersions.this);
+                }
+            });
+            touched = pending;
+        }
+        touched.add(collection);
+    }
+
+    /**
+     * Lee las versiones confirmadas por otras instancias
+     */
+    @Scheduled(fixedDelayString = "${rocket.versions.poll-ms:1000}")
+    public void refresh() {
+        try {
+            for (Collection collection : retry) {
+                apply(collection, increment(collection));
+                retry.remove(collection);
+            }
+            for (Collection collection : Collection.values()) {
+                Long version = versionMapper.findVersion(collection.name());
+                if (version != null) {
+                    apply(collection, version);
+                } else {
+                    log.warn("Falta la fila {} en VERSIONES_COLECCION; los listados se responden sin ETag", collection);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("No se pudieron leer las versiones de las colecciones: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Registra una acción que se ejecuta cada vez que cambia la versión de la colección
+     * @param collection Colección observada
+     * @param listener Acción rápida (se ejecuta en el hilo que confirmó la escritura o leyó la tabla)
+     */
+    public void onChange(Collection collection, Runnable listener) {
+        listeners.get(collection).add(listener);
+    }
+
+    /**
+     * @param collection Colección
+     * @return Versión actual (-1 si aún no se conoce)
+     */
+    public long version(Collection collection) {
+        return versions.get(collection).get();
+    }
+
+    /**
+     * ETag de un listado que se lee del primario
+     * @param collection Colección
+     * @return ETag fuerte (entre comillas) de la versión actual, o null si aún no se conoce
+     */
+    public String etag(Collection collection) {
+        long version = version(collection);
+        return version < 0 ? null : "\"" + collection.name().toLowerCase() + "-" + version + "\"";
+    }
+
+    /**
+     * ETag de un listado que se lee en una transacción de solo lectura (páginas, fields= y streaming)
+     * @param collection Colección
+     * @return null con la réplica activa (sus datos pueden ser anteriores a la versión), si no {@link #etag}
+     */
+    public String replicaReadEtag(Collection collection) {
+        return replicaEnabled ? null : etag(collection);
+    }
+
+    // Dentro de una transacción BATCH la sentencia va por una sesión BATCH: MyBatis no permite cambiar de ExecutorType
+    private long increment(Collection collection) {
+        SqlSessionHolder holder = (SqlSessionHolder) TransactionSynchronizationManager.getResource(sqlSessionFactory);
+        CollectionVersionMapper mapper = holder != null && holder.getExecutorType() == ExecutorType.BATCH
+                ? batchVersionMapper : versionMapper;
+        if (mapper.increment(collection.name()) == 0) {
+            throw new IllegalStateException("Falta la fila " + collection + " en VERSIONES_COLECCION");
+        }
+        // En BATCH el SELECT ejecuta antes el UPDATE pendiente
+        return mapper.findVersion(collection.name());
+    }
+
+    private void apply(Collection collection, long version) {
+        long previous = versions.get(collection).getAndAccumulate(version, Math::max);
+        if (version > previous) {
+            for (Runnable listener : listeners.get(collection)) {
+                listener.run();
+            }
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.thymeleaf.context.Context;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Locale;
 
 @Service
@@ -28,37 +29,109 @@ public class EmailService {
     }
 
     /**
-     * Envía un correo electrónico al estudiante con la información de su préstamo
+     * Envía un correo electrónico al estudiante con la información de su préstamo.
+     * Los errores se propagan para que la bandeja de salida pueda reintentar el envío.
      * @param student Estudiante destinatario
      * @param loan Préstamo realizado
      * @param book Libro prestado
+     * @throws MessagingException Si el mensaje no se puede construir
+     * @throws org.springframework.mail.MailException Si el servidor de correo rechaza el envío
      */
-    public void sendLoanConfirmationEmail(Student student, Loan loan, Book book) {
-        try {
-            // Preparar el contexto para la plantilla
-            final Context ctx = new Context(new Locale("es", "ES"));
-            ctx.setVariable("student", student);
-            ctx.setVariable("loan", loan);
-            ctx.setVariable("book", book);
-            ctx.setVariable("fechaPrestamo", loan.getFechaPrestamo().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
-            ctx.setVariable("fechaDevolucion", loan.getFechaDevolucion().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
-
-            // Procesar la plantilla
-            final String htmlContent = templateEngine.process("emails/loan-confirmation", ctx);
-
-            // Crear y enviar el mensaje
-            MimeMessage message = emailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            helper.setFrom("biblioteca@tuinstitucion.edu");
-            helper.setTo(student.getEmail());
-            helper.setSubject("Confirmación de Préstamo de Libro");
-            helper.setText(htmlContent, true);
-
-            emailSender.send(message);
-        } catch (MessagingException e) {
-            // Loguear el error, pero no detener el proceso
-            System.err.println("Error al enviar correo electrónico: " + e.getMessage());
+    public void sendLoanConfirmationEmail(Student student, Loan loan, Book book) throws MessagingException {
+        send(student.getEmail(), "Confirmación de Préstamo de Libro", renderLoanConfirmation(student, loan, book));
+    }
+
+    /**
+     * Envía un recordatorio al estudiante de que su préstamo está vencido.
+     * Los errores se propagan para que la bandeja de salida pueda reintentar el envío.
+     * @param student Estudiante destinatario
+     * @param loan Préstamo vencido
+     * @param book Libro prestado
+     * @throws MessagingException Si el mensaje no se puede construir
+     * @throws org.springframework.mail.MailException Si el servidor de correo rechaza el envío
+     */
+    public void sendOverdueReminderEmail(Student student, Loan loan, Book book) throws MessagingException {
+        send(student.getEmail(), "Recordatorio: Préstamo Vencido", render("emails/overdue-reminder", student, loan, book));
+    }
+
+    /**
+     * Construye el correo de resumen de un estudiante con sus préstamos y devoluciones recientes, sin enviarlo
+     * @param student Estudiante destinatario
+     * @param prestamos Préstamos registrados en la ventana del resumen (con libro)
+     * @param devoluciones Préstamos devueltos en la ventana del resumen (con libro)
+     * @return Mensaje listo para {@link #sendAll(List)}
+     * @throws MessagingException Si el mensaje no se puede construir
+     */
+    public MimeMessage buildLoanDigest(Student student, List<Loan> prestamos, List<Loan> devoluciones)
+            throws MessagingException {
+        return build(student.getEmail(), "Resumen de tus Préstamos",
+                renderLoanDigest(student, prestamos, devoluciones));
+    }
+
+    /**
+     * Genera el HTML del correo de resumen
+     * @param student Estudiante destinatario
+     * @param prestamos Préstamos registrados en la ventana del resumen
+     * @param devoluciones Préstamos devueltos en la ventana del resumen
+     * @return Contenido HTML procesado con la plantilla emails/loan-digest
+     */
+    public String renderLoanDigest(Student student, List<Loan> prestamos, List<Loan> devoluciones) {
+        final Context ctx = new Context(new Locale("es", "ES"));
+        ctx.setVariable("student", student);
+        ctx.setVariable("prestamos", prestamos);
+        ctx.setVariable("devoluciones", devoluciones);
+        ctx.setVariable("formato", DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+        return templateEngine.process("emails/loan-digest", ctx);
+    }
+
+    /**
+     * Envía varios mensajes por una sola conexión SMTP.
+     * Si algunos fallan, la excepción indica cuáles en getFailedMessages().
+     * @param messages Mensajes construidos con este servicio
+     * @throws org.springframework.mail.MailException Si el servidor de correo rechaza alguno de los envíos
+     */
+    public void sendAll(List<MimeMessage> messages) {
+        if (!messages.isEmpty()) {
+            emailSender.send(messages.toArray(new MimeMessage[0]));
         }
     }
 
+    /**
+     * Genera el HTML del correo de confirmación de préstamo
+     * @param student Estudiante destinatario
+     * @param loan Préstamo realizado
+     * @param book Libro prestado
+     * @return Contenido HTML procesado con la plantilla emails/loan-confirmation
+     */
+    public String renderLoanConfirmation(Student student, Loan loan, Book book) {
+        return render("emails/loan-confirmation", student, loan, book);
+    }
+
+    private String render(String template, Student student, Loan loan, Book book) {
+        // Preparar el contexto para la plantilla
+        final Context ctx = new Context(new Locale("es", "ES"));
+        ctx.setVariable("student", student);
+        ctx.setVariable("loan", loan);
+        ctx.setVariable("book", book);
+        ctx.setVariable("fechaPrestamo", loan.getFechaPrestamo().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
+        ctx.setVariable("fechaDevolucion", loan.getFechaDevolucion().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
+
+        // Procesar la plantilla
+        return templateEngine.process(template, ctx);
+    }
+
+    private void send(String to, String subject, String htmlContent) throws MessagingException {
+        emailSender.send(build(to, subject, htmlContent));
+    }
+
+    private MimeMessage build(String to, String subject, String htmlContent) throws MessagingException {
+        MimeMessage message = emailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom("biblioteca@tuinstitucion.edu");
+        helper.setTo(to);
+        helper.setSubject(subject);
+        helper.setText(htmlContent, true);
+        return message;
+    }
+
 }
\ No newline at end of file
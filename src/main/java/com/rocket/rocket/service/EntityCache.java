@@ -0,0 +1,222 @@
+package com.rocket.rocket.service;
+
+import com.rocket.rocket.mapper.BookMapper;
+import com.rocket.rocket.mapper.StudentMapper;
+import com.rocket.rocket.model.Book;
+import com.rocket.rocket.model.Student;
+import com.rocket.rocket.utils.AfterCommit;
+import com.rocket.rocket.utils.BoundedCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de lectura para libros y estudiantes buscados por ID.
+ * <p>
+ * Las escrituras invalidan la entrada de inmediato y otra vez después del commit.
+ * Dentro de una transacción que modificó una entrada, las lecturas de esa entrada van
+ * directo a la base de datos y no se guardan, para que un rollback nunca deje en la
+ * caché datos que no se confirmaron.
+ */
+@Component
+public class EntityCache {
+
+    private static final int MAX_IN_LIST = 1000;
+
+    private final BookMapper bookMapper;
+    private final StudentMapper studentMapper;
+    private final BoundedCache<Long, Book> books;
+    private final BoundedCache<Long, Student> students;
+
+    // Cambian con cada invalidación; una lectura lenta no guarda un valor que ya fue invalidado
+    private final AtomicLong bookGeneration = new AtomicLong();
+    private final AtomicLong studentGeneration = new AtomicLong();
+
+    public EntityCache(BookMapper bookMapper, StudentMapper studentMapper, MeterRegistry registry,
+                       @Value("${rocket.cache.max-entries:10000}") int maxEntries,
+                       @Value("${rocket.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.bookMapper = bookMapper;
+        this.studentMapper = studentMapper;
+        this.books = new BoundedCache<>(maxEntries, ttlSeconds * 1000);
+        this.students = new BoundedCache<>(maxEntries, ttlSeconds * 1000);
+        books.bindTo(registry, "book");
+        students.bindTo(registry, "student");
+    }
+
+    /**
+     * Busca un libro por ID pasando primero por la caché
+     * @param id ID del libro
+     * @return Copia del libro o null si no existe
+     */
+    public Book findBook(Long id) {
+        if (id == null) {
+            return null;
+        }
+        if (isDirty("book:" + id)) {
+            return bookMapper.findById(id);
+        }
+        Book cached = books.get(id);
+        if (cached != null) {
+            return copy(cached);
+        }
+        long generation = bookGeneration.get();
+        Book book = bookMapper.findById(id);
+        if (book != null && bookGeneration.get() == generation) {
+            books.put(id, copy(book));
+        }
+        return book;
+    }
+
+    /**
+     * Busca varios libros por ID; los que no están en caché se leen con una sola consulta por cada 1000 IDs
+     * @param ids IDs de los libros en el orden deseado
+     * @return Copias de los libros encontrados, en el mismo orden que los IDs
+     */
+    public List<Book> findBooks(List<Long> ids) {
+        Map<Long, Book> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            Book cached = isDirty("book:" + id) ? null : books.get(id);
+            if (cached != null) {
+                found.put(id, copy(cached));
+            } else {
+                missing.add(id);
+            }
+        }
+
+        long generation = bookGeneration.get();
+        for (int from = 0; from < missing.size(); from += MAX_IN_LIST) {
+            List<Long> chunk = missing.subList(from, Math.min(from + MAX_IN_LIST, missing.size()));
+            for (Book book : bookMapper.findByIds(chunk)) {
+                found.put(book.getId(), book);
+                if (bookGeneration.get() == generation && !isDirty("book:" + book.getId())) {
+                    books.put(book.getId(), copy(book));
+                }
+            }
+        }
+
+        List<Book> result = new ArrayList<>(found.size());
+        for (Long id : ids) {
+            Book book = found.get(id);
+            if (book != null) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Busca un estudiante por ID pasando primero por la caché
+     * @param id ID del estudiante
+     * @return Copia del estudiante o null si no existe
+     */
+    public Student findStudent(Long id) {
+        if (id == null) {
+            return null;
+        }
+        if (isDirty("student:" + id)) {
+            return studentMapper.findById(id);
+        }
+        Student cached = students.get(id);
+        if (cached != null) {
+            return copy(cached);
+        }
+        long generation = studentGeneration.get();
+        Student student = studentMapper.findById(id);
+        if (student != null && studentGeneration.get() == generation) {
+            students.put(id, copy(student));
+        }
+        return student;
+    }
+
+    /**
+     * Invalida un libro; llamar después de escribirlo en la base de datos
+     * @param id ID del libro modificado
+     */
+    public void evictBook(Long id) {
+        markDirty("book:" + id);
+        bookGeneration.incrementAndGet();
+        books.remove(id);
+        AfterCommit.run(() -> {
+            bookGeneration.incrementAndGet();
+            books.remove(id);
+        });
+    }
+
+    /**
+     * Invalida un estudiante; llamar después de escribirlo en la base de datos
+     * @param id ID del estudiante modificado o eliminado
+     */
+    public void evictStudent(Long id) {
+        markDirty("student:" + id);
+        studentGeneration.incrementAndGet();
+        students.remove(id);
+        AfterCommit.run(() -> {
+            studentGeneration.incrementAndGet();
+            students.remove(id);
+        });
+    }
+
+    public BoundedCache<Long, Book> getBooks() {
+        return books;
+    }
+
+    public BoundedCache<Long, Student> getStudents() {
+        return students;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean isDirty(String key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        Set<String> dirty = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        return dirty != null && dirty.contains(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void markDirty(String key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Set<String> dirty = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (dirty == null) {
+            dirty = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, dirty);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(EntityCache.this);
+                }
+            });
+        }
+        dirty.add(key);
+    }
+
+    private static Book copy(Book source) {
+        Book book = new Book();
+        book.setId(source.getId());
+        book.setTitulo(source.getTitulo());
+        book.setAutor(source.getAutor());
+        book.setEditorial(source.getEditorial());
+        book.setStock(source.getStock());
+        book.setDisponible(source.getDisponible());
+        book.setFechaRegistro(source.getFechaRegistro());
+        return book;
+    }
+
+    private static Student copy(Student source) {
+        return new Student(source.getId(), source.getNombre(), source.getApellidos(),
+                source.getTelefono(), source.getEmail(), source.getMatricula());
+    }
+}
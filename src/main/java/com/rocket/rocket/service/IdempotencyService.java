@@ -0,0 +1,278 @@
+package com.rocket.rocket.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rocket.rocket.mapper.IdempotencyMapper;
+import com.rocket.rocket.model.IdempotencyRecord;
+import com.rocket.rocket.utils.BoundedCache;
+import com.rocket.rocket.utils.CustomResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionHolder;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Respuestas guardadas por Idempotency-Key para que los reintentos de un cliente no repitan una escritura.
+ * <p>
+ * La primera petición con una clave se ejecuta en una transacción que también inserta su respuesta en
+ * IDEMPOTENCIA; así la escritura y la respuesta guardada se confirman juntas. Los reintentos reciben la misma
+ * respuesta (de la caché en memoria o de la tabla) sin pasar por el servicio. Una petición con la misma clave
+ * que llega mientras la original está en curso espera su resultado en lugar de ejecutarse otra vez; entre
+ * instancias, la llave primaria hace que la segunda inserción espere a la primera y se revierta.
+ * <p>
+ * Las respuestas 5xx no se guardan (la escritura se revirtió) y el cliente puede reintentar con la misma clave.
+ * Una clave reutilizada con otro endpoint u otro cuerpo responde 422.
+ * <p>
+ * Métrica: rocket.idempotency con la etiqueta result (executed, replayed o conflict).
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyMapper idempotencyMapper;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final SqlSessionTemplate batchSession;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry registry;
+    private final BoundedCache<String, IdempotencyRecord> cache;
+    private final ConcurrentMap<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+    private final long ttlHours;
+
+    @Value("${rocket.idempotency.wait-ms:10000}")
+    private long waitMs = 10000;
+
+    public IdempotencyService(IdempotencyMapper idempotencyMapper, SqlSessionFactory sqlSessionFactory,
+                              ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                              MeterRegistry registry,
+                              @Value("${rocket.idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${rocket.idempotency.ttl-hours:24}") long ttlHours) {
+        this.idempotencyMapper = idempotencyMapper;
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.batchSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.registry = registry;
+        this.cache = new BoundedCache<>(cacheSize, TimeUnit.HOURS.toMillis(ttlHours));
+        cache.bindTo(registry, "idempotency");
+        this.ttlHours = ttlHours;
+    }
+
+    /**
+     * Ejecuta la escritura una sola vez por clave o devuelve la respuesta guardada
+     * @param key Valor del encabezado Idempotency-Key (1 a 100 caracteres)
+     * @param endpoint Método y ruta, por ejemplo "POST /loans/register"
+     * @param request Cuerpo de la petición; su huella se compara con la de la petición original
+     * @param action Escritura a ejecutar (se une a la transacción que guarda la respuesta)
+     * @return Respuesta serializada: la de la escritura, la guardada (replayed), clave inválida (400),
+     *         original aún en curso (409) o clave reutilizada con otra petición (422)
+     */
+    public Outcome execute(String key, String endpoint, Object request, Supplier<CustomResponse<?>> action) {
+        if (key.trim().isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            return error(400, "El encabezado " + HEADER + " debe tener entre 1 y " + MAX_KEY_LENGTH + " caracteres");
+        }
+        String fingerprint;
+        try {
+            fingerprint = fingerprint(endpoint, request);
+        } catch (JsonProcessingException e) {
+            return error(400, "No se pudo leer el cuerpo de la petición: " + e.getOriginalMessage());
+        }
+
+        while (true) {
+            IdempotencyRecord stored = cache.get(key);
+            if (stored != null) {
+                return replay(stored, endpoint, fingerprint);
+            }
+
+            CompletableFuture<IdempotencyRecord> flight = new CompletableFuture<>();
+            CompletableFuture<IdempotencyRecord> existing = inFlight.putIfAbsent(key, flight);
+            if (existing != null) {
+                IdempotencyRecord original;
+                try {
+                    original = existing.get(waitMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    counter("conflict").increment();
+                    return error(409, "La petición original con esta " + HEADER + " sigue en proceso");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return error(409, "La petición original con esta " + HEADER + " sigue en proceso");
+                } catch (ExecutionException e) {
+                    original = null;
+                }
+                if (original != null) {
+                    return replay(original, endpoint, fingerprint);
+                }
+                // La original no guardó respuesta (5xx): esta petición se ejecuta
+                continue;
+            }
+
+            IdempotencyRecord record = null;
+            try {
+                record = idempotencyMapper.findByClave(key);
+                if (record != null) {
+                    cache.put(key, record);
+                    return replay(record, endpoint, fingerprint);
+                }
+                Outcome[] failed = new Outcome[1];
+                record = transactionTemplate.execute(status -> {
+                    CustomResponse<?> response = action.get();
+                    byte[] body = serialize(response);
+                    if (response.getCode() >= 500) {
+                        status.setRollbackOnly();
+                        failed[0] = new Outcome(response.getCode(), body, false);
+                        return null;
+                    }
+                    IdempotencyRecord created = new IdempotencyRecord(key, endpoint, fingerprint, response.getCode(),
+                            new String(body, StandardCharsets.UTF_8), LocalDateTime.now());
+                    insert(created);
+                    return created;
+                });
+                if (record == null) {
+                    return failed[0];
+                }
+                cache.put(key, record);
+                counter("executed").increment();
+                return new Outcome(record.getCodigo(), record.getCuerpo().getBytes(StandardCharsets.UTF_8), false);
+            } catch (DuplicateKeyException e) {
+                // Otra instancia confirmó primero la misma clave; esta escritura se revirtió completa
+                record = idempotencyMapper.findByClave(key);
+                if (record == null) {
+                    throw e;
+                }
+                cache.put(key, record);
+                return replay(record, endpoint, fingerprint);
+            } finally {
+                inFlight.remove(key, flight);
+                flight.complete(record);
+            }
+        }
+    }
+
+    /**
+     * Borra las respuestas guardadas hace más de rocket.idempotency.ttl-hours
+     */
+    @Scheduled(initialDelayString = "${rocket.idempotency.cleanup-ms:3600000}",
+            fixedDelayString = "${rocket.idempotency.cleanup-ms:3600000}")
+    public void purgeExpired() {
+        try {
+            int deleted = idempotencyMapper.deleteOlderThan(LocalDateTime.now().minusHours(ttlHours));
+            if (deleted > 0) {
+                log.debug("Se borraron {} respuestas de {} vencidas", deleted, HEADER);
+            }
+        } catch (Exception e) {
+            log.warn("No se pudieron borrar las respuestas de {} vencidas: {}", HEADER, e.getMessage());
+        }
+    }
+
+    // Usa la misma sesión que la escritura: MyBatis no permite cambiar de ExecutorType dentro de una transacción
+    private void insert(IdempotencyRecord record) {
+        SqlSessionHolder holder = (SqlSessionHolder) TransactionSynchronizationManager.getResource(sqlSessionFactory);
+        if (holder != null && holder.getExecutorType() == ExecutorType.BATCH) {
+            batchSession.getMapper(IdempotencyMapper.class).insertRecord(record);
+            batchSession.flushStatements();
+        } else {
+            idempotencyMapper.insertRecord(record);
+        }
+    }
+
+    private Outcome replay(IdempotencyRecord record, String endpoint, String fingerprint) {
+        if (!record.getEndpoint().equals(endpoint) || !record.getHuella().equals(fingerprint)) {
+            counter("conflict").increment();
+            return error(422, "La " + HEADER + " ya se usó con una petición distinta");
+        }
+        counter("replayed").increment();
+        return new Outcome(record.getCodigo(), record.getCuerpo().getBytes(StandardCharsets.UTF_8), true);
+    }
+
+    private Outcome error(int code, String message) {
+        return new Outcome(code, serialize(new CustomResponse<>(null, code, message, true)), false);
+    }
+
+    private byte[] serialize(CustomResponse<?> response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la respuesta", e);
+        }
+    }
+
+    private String fingerprint(String endpoint, Object request) throws JsonProcessingException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(endpoint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(objectMapper.writeValueAsBytes(request));
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder("rocket.idempotency")
+                .description("Peticiones con Idempotency-Key ejecutadas, repetidas desde la respuesta guardada o en conflicto")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * Respuesta serializada lista para escribirse
+     */
+    public static final class Outcome {
+
+        private final int code;
+        private final byte[] body;
+        private final boolean replayed;
+
+        private Outcome(int code, byte[] body, boolean replayed) {
+            this.code = code;
+            this.body = body;
+            this.replayed = replayed;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * @return true si es la respuesta guardada de una petición anterior
+         */
+        public boolean isReplayed() {
+            return replayed;
+        }
+    }
+}
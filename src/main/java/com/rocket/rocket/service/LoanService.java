@@ -2,35 +2,117 @@ package com.rocket.rocket.service;
 
 import com.rocket.rocket.mapper.BookMapper;
 import com.rocket.rocket.mapper.LoanMapper;
+import com.rocket.rocket.mapper.NotificationMapper;
 import com.rocket.rocket.mapper.StudentMapper;
 import com.rocket.rocket.model.Book;
 import com.rocket.rocket.model.Loan;
+import com.rocket.rocket.model.LoanAdmission;
+import com.rocket.rocket.model.LoanBatchResult;
+import com.rocket.rocket.model.Notification;
 import com.rocket.rocket.model.Student;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rocket.rocket.utils.BatchUpdates;
 import com.rocket.rocket.utils.CustomResponse;
+import com.rocket.rocket.utils.ExportStreams;
+import com.rocket.rocket.utils.FieldSet;
+import com.rocket.rocket.utils.IdAllocator;
+import com.rocket.rocket.utils.JsonStreams;
+import com.rocket.rocket.utils.KeysetPage;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class LoanService {
 
+    // Campos que acepta fields= en el listado de préstamos; usuario y libro agregan el JOIN correspondiente
+    private static final FieldSet<Loan> FIELDS = new FieldSet<Loan>("id", "p.id", Loan::getId)
+            .field("usuarioId", "p.usuario_id", Loan::getUsuarioId)
+            .field("libroId", "p.libro_id", Loan::getLibroId)
+            .field("fechaPrestamo", "p.fecha_prestamo", Loan::getFechaPrestamo)
+            .field("fechaDevolucion", "p.fecha_devolucion", Loan::getFechaDevolucion)
+            .field("estado", "p.estado", Loan::getEstado)
+            .field("usuario", "u.id AS student_id, u.nombre AS student_nombre, "
+                    + "u.apellidos AS student_apellidos, u.email AS student_email", Loan::getUsuario)
+            .field("libro", "l.id AS book_id, l.titulo AS book_titulo, "
+                    + "l.autor AS book_autor, l.editorial AS book_editorial", Loan::getLibro);
+
+    // Columnas de la exportación de préstamos (CSV y NDJSON)
+    private static final List<ExportStreams.Column<Loan>> EXPORT_COLUMNS = ExportStreams.columns(
+            ExportStreams.column("id", Loan::getId),
+            ExportStreams.column("fechaPrestamo", Loan::getFechaPrestamo),
+            ExportStreams.column("fechaDevolucion", Loan::getFechaDevolucion),
+            ExportStreams.column("estado", Loan::getEstado),
+            ExportStreams.column("usuarioId", Loan::getUsuarioId),
+            ExportStreams.column("nombre", loan -> loan.getUsuario().getNombre()),
+            ExportStreams.column("apellidos", loan -> loan.getUsuario().getApellidos()),
+            ExportStreams.column("email", loan -> loan.getUsuario().getEmail()),
+            ExportStreams.column("libroId", Loan::getLibroId),
+            ExportStreams.column("titulo", loan -> loan.getLibro().getTitulo()),
+            ExportStreams.column("autor", loan -> loan.getLibro().getAutor()),
+            ExportStreams.column("editorial", loan -> loan.getLibro().getEditorial()));
+
     private final LoanMapper loanMapper;
     private final BookMapper bookMapper;
     private final StudentMapper studentMapper;
-    private final EmailService emailService;
+    private final NotificationMapper notificationMapper;
+    private final IdAllocator loanIdAllocator;
+    private final ObjectMapper objectMapper;
+    private final EntityCache entityCache;
+    private final CollectionVersions collectionVersions;
+    private final StudentDirectory studentDirectory;
+    private final ReadCoalescer readCoalescer;
+    private final LoanStatistics loanStatistics;
+    private final SqlSessionTemplate batchSession;
     private static final int MAX_LOANS_PER_USER = 3;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MAX_IN_LIST = 1000;
+
+    // En modo resumen las devoluciones también se notifican, dentro del correo de resumen del estudiante
+    @Value("${rocket.outbox.digest.enabled:false}")
+    private boolean digestEnabled;
 
     @Autowired
     public LoanService(LoanMapper loanMapper, BookMapper bookMapper,
-                       StudentMapper studentMapper, EmailService emailService) {
+                       StudentMapper studentMapper, NotificationMapper notificationMapper,
+                       @Qualifier("loanIdAllocator") IdAllocator loanIdAllocator,
+                       ObjectMapper objectMapper, EntityCache entityCache,
+                       CollectionVersions collectionVersions, StudentDirectory studentDirectory,
+                       ReadCoalescer readCoalescer, LoanStatistics loanStatistics,
+                       SqlSessionFactory sqlSessionFactory) {
         this.loanMapper = loanMapper;
         this.bookMapper = bookMapper;
         this.studentMapper = studentMapper;
-        this.emailService = emailService;
+        this.notificationMapper = notificationMapper;
+        this.loanIdAllocator = loanIdAllocator;
+        this.objectMapper = objectMapper;
+        this.entityCache = entityCache;
+        this.collectionVersions = collectionVersions;
+        this.studentDirectory = studentDirectory;
+        this.readCoalescer = readCoalescer;
+        this.loanStatistics = loanStatistics;
+        // Sesión con ExecutorType.BATCH para registrar préstamos en lote
+        this.batchSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
     }
 
     /**
@@ -54,14 +136,15 @@ public class LoanService {
     }
 
     /**
-     * Obtiene todos los préstamos registrados en el sistema con detalles completos
+     * Obtiene todos los préstamos registrados en el sistema con detalles completos.
+     * Las llamadas concurrentes comparten la misma consulta ({@link ReadCoalescer}).
      * @return CustomResponse con la lista de préstamos (200),
      *         lista vacía (200) o error del servidor (500)
      */
-
     public CustomResponse<List<Loan>> getAllLoans() {
         try {
-            List<Loan> loans = loanMapper.findAllWithDetails();
+            List<Loan> loans = readCoalescer.execute("loans.findAll", loanMapper::findAllWithDetails,
+                    collectionVersions.version(CollectionVersions.Collection.LOANS));
             if (loans != null && !loans.isEmpty()) {
                 return new CustomResponse<>(loans, 200,
                         "Se encontraron " + loans.size() + " préstamos", false);
@@ -76,13 +159,123 @@ public class LoanService {
     }
 
     /**
-     * Busca préstamos por nombre del estudiante
+     * Obtiene todos los préstamos leyendo solo las columnas pedidas; USUARIOS y LIBROS
+     * se unen únicamente si se pidieron los campos usuario o libro
+     * @param fields Campos separados por coma (el id siempre se incluye), por ejemplo "fechaDevolucion,libro"
+     * @return CustomResponse con los préstamos con solo esos campos (200),
+     *         campo desconocido (400) o error del servidor (500)
+     */
+    @Transactional(readOnly = true)
+    public CustomResponse<List<Map<String, Object>>> getAllLoans(String fields) {
+        try {
+            FieldSet<Loan>.Selection selection;
+            try {
+                selection = FIELDS.parse(fields);
+            } catch (IllegalArgumentException e) {
+                return new CustomResponse<>(null, 400, e.getMessage(), true);
+            }
+            List<Loan> loans = loanMapper.findAllFields(selection.getColumns(),
+                    selection.includes("usuario"), selection.includes("libro"));
+            if (loans != null && !loans.isEmpty()) {
+                return new CustomResponse<>(selection.project(loans), 200,
+                        "Se encontraron " + loans.size() + " préstamos", false);
+            } else {
+                return new CustomResponse<>(new ArrayList<>(), 200,
+                        "No hay préstamos registrados en el sistema", false);
+            }
+        } catch (Exception e) {
+            return new CustomResponse<>(null, 500,
+                    "Error al obtener los préstamos: " + e.getMessage(), true);
+        }
+    }
+
+    /**
+     * Obtiene una página de préstamos con detalles, ordenada por fecha de préstamo descendente
+     * @param after Cursor "fecha_prestamo,id" devuelto en la página anterior (opcional)
+     * @param limit Tamaño de página (1 a 500, 50 si no se indica)
+     * @return CustomResponse con la página de préstamos (200),
+     *         cursor o límite inválido (400) o error del servidor (500)
+     */
+    @Transactional(readOnly = true)
+    public CustomResponse<KeysetPage<Loan>> getLoansPage(String after, Integer limit) {
+        try {
+            int size = limit != null ? limit : KeysetPage.DEFAULT_LIMIT;
+            if (size < 1 || size > KeysetPage.MAX_LIMIT) {
+                return new CustomResponse<>(null, 400,
+                        "El límite debe estar entre 1 y " + KeysetPage.MAX_LIMIT, true);
+            }
+
+            LocalDate afterFecha = null;
+            Long afterId = null;
+            if (after != null && !after.trim().isEmpty()) {
+                String[] parts = after.split(",");
+                try {
+                    if (parts.length != 2) {
+                        throw new IllegalArgumentException(after);
+                    }
+                    afterFecha = LocalDate.parse(parts[0].trim());
+                    afterId = Long.valueOf(parts[1].trim());
+                } catch (DateTimeParseException | IllegalArgumentException e) {
+                    return new CustomResponse<>(null, 400,
+                            "Cursor inválido, se esperaba 'aaaa-mm-dd,id': " + after, true);
+                }
+            }
+
+            List<Loan> rows = loanMapper.findPageWithDetails(afterFecha, afterId, size + 1);
+            KeysetPage<Loan> page = KeysetPage.of(rows, size, l -> l.getFechaPrestamo() + "," + l.getId());
+            return new CustomResponse<>(page, 200,
+                    "Se encontraron " + page.getItems().size() + " préstamos en la página", false);
+        } catch (Exception e) {
+            return new CustomResponse<>(null, 500,
+                    "Error al obtener los préstamos: " + e.getMessage(), true);
+        }
+    }
+
+    /**
+     * Escribe todos los préstamos con detalles directamente en la respuesta, fila por fila,
+     * usando un cursor de MyBatis; la memoria usada no depende del número de préstamos
+     * @param out Flujo de salida de la respuesta HTTP
+     * @throws IOException Si el cliente cierra la conexión
+     */
+    @Transactional(readOnly = true)
+    public void streamAllLoans(OutputStream out) throws IOException {
+        try (Cursor<Loan> cursor = loanMapper.streamAllWithDetails()) {
+            JsonStreams.writeResponse(objectMapper, out, cursor, 200, "Préstamos obtenidos exitosamente");
+        }
+    }
+
+    /**
+     * Exporta préstamos con estudiante y libro fila por fila con un cursor de MyBatis;
+     * la memoria usada no depende del número de préstamos
+     * @param out Flujo de salida de la respuesta HTTP
+     * @param format CSV o NDJSON
+     * @param desde Fecha de préstamo mínima (inclusive) o null
+     * @param hasta Fecha de préstamo máxima (inclusive) o null
+     * @param estado Estado exacto o null para todos
+     * @return Número de préstamos exportados
+     * @throws IOException Si el cliente cierra la conexión
+     */
+    @Transactional(readOnly = true)
+    public long exportLoans(OutputStream out, ExportStreams.Format format,
+                            LocalDate desde, LocalDate hasta, String estado) throws IOException {
+        try (Cursor<Loan> cursor = loanMapper.streamExport(desde, hasta != null ? hasta.plusDays(1) : null, estado)) {
+            return ExportStreams.write(objectMapper, out, format, EXPORT_COLUMNS, cursor);
+        }
+    }
+
+    /**
+     * Busca préstamos por nombre del estudiante. Los estudiantes se resuelven en {@link StudentDirectory}
+     * (cada palabra es el inicio de alguna palabra de nombre o apellidos) y solo se leen sus préstamos;
+     * con el directorio aún sin construir se busca la coincidencia parcial en USUARIOS.
      * @param nombre Nombre (parcial o completo) del estudiante
      * @return Lista de préstamos o mensaje de error
      */
+    @Transactional(readOnly = true)
     public CustomResponse<List<Loan>> getLoansByStudentName(String nombre) {
         try {
-            List<Loan> loans = loanMapper.findByStudentNameWithDetails(nombre);
+            List<Loan> loans = studentDirectory.isReady()
+                    ? findByStudentIdsWithDetails(new ArrayList<>(studentDirectory.findIdsByName(nombre)))
+                    : loanMapper.findByStudentNameWithDetails(nombre);
             if (loans != null && !loans.isEmpty()) {
                 return new CustomResponse<>(loans, 200,
                         "Se encontraron " + loans.size() + " préstamos para el nombre: " + nombre, false);
@@ -96,6 +289,19 @@ public class LoanService {
         }
     }
 
+    // Préstamos con detalles de varios estudiantes, del más reciente al más antiguo
+    private List<Loan> findByStudentIdsWithDetails(List<Long> ids) {
+        List<Loan> loans = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+            loans.addAll(loanMapper.findByUsuarioIdsWithDetails(ids.subList(from, Math.min(from + MAX_IN_LIST, ids.size()))));
+        }
+        if (ids.size() > MAX_IN_LIST) {
+            loans.sort(Comparator.comparing(Loan::getFechaPrestamo, Comparator.nullsLast(Comparator.reverseOrder()))
+                    .thenComparing(Loan::getId, Comparator.reverseOrder()));
+        }
+        return loans;
+    }
+
     /**
      * Crea un nuevo registro de préstamo en el sistema
      * @param loan Objeto Loan con los datos del préstamo
@@ -108,14 +314,14 @@ public class LoanService {
     public CustomResponse<Loan> crearLoan(Loan loan) {
         try {
             // Validar que el usuario existe
-            Student student = studentMapper.findById(loan.getUsuarioId());
+            Student student = entityCache.findStudent(loan.getUsuarioId());
             if (student == null) {
                 return new CustomResponse<>(null, 404,
                         "No se encontró al estudiante con ID: " + loan.getUsuarioId(), true);
             }
 
             // Validar que el libro existe
-            Book book = bookMapper.findById(loan.getLibroId());
+            Book book = entityCache.findBook(loan.getLibroId());
             if (book == null) {
                 return new CustomResponse<>(null, 404,
                         "No se encontró el libro con ID: " + loan.getLibroId(), true);
@@ -133,26 +339,18 @@ public class LoanService {
                         "No hay ejemplares disponibles del libro '" + book.getTitulo() + "'", true);
             }
 
-            // Obtener préstamos activos del usuario
-            List<Loan> activeUserLoans = loanMapper.findByUsuarioIdWithDetails(loan.getUsuarioId());
+            // Contar préstamos activos del usuario (y los del mismo libro) en una sola consulta indexada
+            LoanAdmission admission = loanMapper.findAdmission(loan.getUsuarioId(), loan.getLibroId());
 
             // Verificar que el usuario no tenga más de 3 préstamos activos
-            long activeLoansCount = activeUserLoans.stream()
-                    .filter(l -> "ACTIVO".equals(l.getEstado()))
-                    .count();
-
-            if (activeLoansCount >= MAX_LOANS_PER_USER) {
+            if (admission.getActivos() >= MAX_LOANS_PER_USER) {
                 return new CustomResponse<>(null, 400,
                         "El estudiante ya tiene " + MAX_LOANS_PER_USER + " préstamos activos. " +
                                 "No puede solicitar más libros hasta devolver alguno.", true);
             }
 
             // Verificar si el usuario ya tiene un préstamo activo del mismo libro
-            boolean hasSameBookActive = activeUserLoans.stream()
-                    .anyMatch(l -> l.getLibroId().equals(loan.getLibroId()) &&
-                            "ACTIVO".equals(l.getEstado()));
-
-            if (hasSameBookActive) {
+            if (admission.getMismoLibro() > 0) {
                 return new CustomResponse<>(null, 400,
                         "El estudiante ya tiene un préstamo activo de este libro", true);
             }
@@ -169,36 +367,203 @@ public class LoanService {
             // Establecer estado inicial
             loan.setEstado("ACTIVO");
 
+            // Apartar un ejemplar de forma atómica; falla si otro préstamo se llevó el último
+            if (bookMapper.decrementStock(loan.getLibroId()) == 0) {
+                return new CustomResponse<>(null, 400,
+                        "No hay ejemplares disponibles del libro '" + book.getTitulo() + "'", true);
+            }
+            entityCache.evictBook(loan.getLibroId());
+
             // Guardar el préstamo
+            loan.setId(loanIdAllocator.nextId());
             loanMapper.insertLoan(loan);
-
-            // Actualizar stock del libro
-            book.setStock(book.getStock() - 1);
-            if (book.getStock() <= 0) {
-                book.setDisponible(false);
-            }
-            bookMapper.updateBook(book);
+            loanStatistics.loanCreated(loan);
+            collectionVersions.touch(CollectionVersions.Collection.LOANS);
+            collectionVersions.touch(CollectionVersions.Collection.BOOKS);
 
             // Obtener el préstamo con todos los detalles
             Loan savedLoan = loanMapper.findByIdWithDetails(loan.getId());
 
-            // Enviar correo electrónico de confirmación
-            try {
-                emailService.sendLoanConfirmationEmail(student, savedLoan, book);
-                return new CustomResponse<>(savedLoan, 201,
-                        "Préstamo registrado exitosamente. Se ha enviado un correo de confirmación a " +
-                                student.getEmail(), false);
-            } catch (Exception e) {
-                return new CustomResponse<>(savedLoan, 201,
-                        "Préstamo registrado exitosamente. Error al enviar correo de confirmación: " +
-                                e.getMessage(), false);
-            }
+            // Encolar el correo de confirmación en la misma transacción;
+            // NotificationDispatcher lo envía en segundo plano
+            notificationMapper.insertNotification(Notification.loanConfirmation(savedLoan));
+
+            return new CustomResponse<>(savedLoan, 201,
+                    "Préstamo registrado exitosamente. Se enviará un correo de confirmación a " +
+                            student.getEmail(), false);
         } catch (Exception e) {
+            // Sin esto el préstamo quedaría guardado sin su notificación pendiente
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return new CustomResponse<>(null, 500,
                     "Error al crear el préstamo: " + e.getMessage(), true);
         }
     }
 
+    /**
+     * Registra varios préstamos en una sola transacción.
+     * <p>
+     * Estudiantes, libros y préstamos activos se leen con una consulta cada uno para todo el lote,
+     * y las escrituras (stock, préstamos y notificaciones) se envían con JDBC batch.
+     * Cada préstamo se valida con las mismas reglas que {@link #crearLoan(Loan)}, contando también
+     * los préstamos anteriores del mismo lote; los que no pasan se rechazan sin afectar a los demás.
+     * Si otra petición se lleva el stock de un libro entre la lectura y la escritura,
+     * se rechazan todos los préstamos del lote para ese libro.
+     * @param loans Préstamos a registrar (máximo 500)
+     * @return CustomResponse con el resultado de cada préstamo en el orden recibido (200),
+     *         lista vacía o demasiado grande (400) o error del servidor (500)
+     */
+    @Transactional
+    public CustomResponse<List<LoanBatchResult>> crearLoans(List<Loan> loans) {
+        if (loans == null || loans.isEmpty()) {
+            return new CustomResponse<>(null, 400, "La lista de préstamos está vacía", true);
+        }
+        if (loans.size() > MAX_BATCH_SIZE) {
+            return new CustomResponse<>(null, 400,
+                    "No se pueden registrar más de " + MAX_BATCH_SIZE + " préstamos por lote", true);
+        }
+        try {
+            // Dentro de esta transacción todas las consultas pasan por la sesión BATCH:
+            // MyBatis no permite cambiar de ExecutorType a mitad de una transacción
+            LoanMapper batchLoans = batchSession.getMapper(LoanMapper.class);
+            BookMapper batchBooks = batchSession.getMapper(BookMapper.class);
+            StudentMapper batchStudents = batchSession.getMapper(StudentMapper.class);
+            NotificationMapper batchNotifications = batchSession.getMapper(NotificationMapper.class);
+
+            Set<Long> studentIds = new HashSet<>();
+            Set<Long> bookIds = new HashSet<>();
+            for (Loan loan : loans) {
+                if (loan != null && loan.getUsuarioId() != null) {
+                    studentIds.add(loan.getUsuarioId());
+                }
+                if (loan != null && loan.getLibroId() != null) {
+                    bookIds.add(loan.getLibroId());
+                }
+            }
+
+            Map<Long, Student> students = new HashMap<>();
+            Map<Long, Book> books = new HashMap<>();
+            Map<Long, Integer> activeCount = new HashMap<>();
+            Set<String> activePairs = new HashSet<>();
+            if (!studentIds.isEmpty()) {
+                for (Student student : batchStudents.findByIds(studentIds)) {
+                    students.put(student.getId(), student);
+                }
+                for (Loan active : batchLoans.findActiveByUsuarioIds(studentIds)) {
+                    activeCount.merge(active.getUsuarioId(), 1, Integer::sum);
+                    activePairs.add(active.getUsuarioId() + ":" + active.getLibroId());
+                }
+            }
+            if (!bookIds.isEmpty()) {
+                for (Book book : batchBooks.findByIds(bookIds)) {
+                    books.put(book.getId(), book);
+                }
+            }
+
+            // Validar cada préstamo en orden, descontando el stock y sumando los préstamos ya aceptados
+            LoanBatchResult[] results = new LoanBatchResult[loans.size()];
+            Map<Long, Integer> remainingStock = new HashMap<>();
+            Map<Long, List<Integer>> acceptedByBook = new LinkedHashMap<>();
+            for (int i = 0; i < loans.size(); i++) {
+                Loan loan = loans.get(i);
+                String rejection = null;
+                int code = 400;
+                Student student = loan != null ? students.get(loan.getUsuarioId()) : null;
+                Book book = loan != null ? books.get(loan.getLibroId()) : null;
+                if (loan == null || student == null) {
+                    code = 404;
+                    rejection = "No se encontró al estudiante con ID: " + (loan != null ? loan.getUsuarioId() : null);
+                } else if (book == null) {
+                    code = 404;
+                    rejection = "No se encontró el libro con ID: " + loan.getLibroId();
+                } else if (book.getDisponible() != null && !book.getDisponible()) {
+                    rejection = "El libro '" + book.getTitulo() + "' no está disponible para préstamo";
+                } else if (remainingStock.computeIfAbsent(book.getId(),
+                        id -> book.getStock() != null ? book.getStock() : Integer.MAX_VALUE) <= 0) {
+                    rejection = "No hay ejemplares disponibles del libro '" + book.getTitulo() + "'";
+                } else if (activeCount.getOrDefault(student.getId(), 0) >= MAX_LOANS_PER_USER) {
+                    rejection = "El estudiante ya tiene " + MAX_LOANS_PER_USER + " préstamos activos. " +
+                            "No puede solicitar más libros hasta devolver alguno.";
+                } else if (!activePairs.add(student.getId() + ":" + book.getId())) {
+                    rejection = "El estudiante ya tiene un préstamo activo de este libro";
+                }
+
+                if (rejection != null) {
+                    results[i] = new LoanBatchResult(i, code, rejection, true, null);
+                    continue;
+                }
+                remainingStock.merge(book.getId(), -1, Integer::sum);
+                activeCount.merge(student.getId(), 1, Integer::sum);
+                acceptedByBook.computeIfAbsent(book.getId(), id -> new ArrayList<>()).add(i);
+            }
+
+            // Apartar los ejemplares: un UPDATE por libro, enviados juntos
+            List<Long> reservedBooks = new ArrayList<>(acceptedByBook.keySet());
+            for (Long bookId : reservedBooks) {
+                batchBooks.decrementStockBy(bookId, acceptedByBook.get(bookId).size());
+            }
+            int[] reserved = BatchUpdates.counts(batchSession.flushStatements(), reservedBooks.size());
+
+            List<Loan> created = new ArrayList<>();
+            for (int b = 0; b < reservedBooks.size(); b++) {
+                Long bookId = reservedBooks.get(b);
+                Book book = books.get(bookId);
+                if (reserved[b] == 0) {
+                    for (Integer i : acceptedByBook.get(bookId)) {
+                        results[i] = new LoanBatchResult(i, 400,
+                                "No hay ejemplares disponibles del libro '" + book.getTitulo() + "'", true, null);
+                    }
+                    continue;
+                }
+                entityCache.evictBook(bookId);
+                for (Integer i : acceptedByBook.get(bookId)) {
+                    Loan loan = loans.get(i);
+                    if (loan.getFechaPrestamo() == null) {
+                        loan.setFechaPrestamo(LocalDate.now());
+                    }
+                    if (loan.getFechaDevolucion() == null) {
+                        loan.setFechaDevolucion(LocalDate.now().plusDays(15));
+                    }
+                    loan.setEstado("ACTIVO");
+                    loan.setId(loanIdAllocator.nextId());
+                    loan.setUsuario(students.get(loan.getUsuarioId()));
+                    loan.setLibro(book);
+                    created.add(loan);
+                    results[i] = new LoanBatchResult(i, 201, "Préstamo registrado exitosamente", false, loan);
+                }
+            }
+
+            // Insertar préstamos y notificaciones; cada grupo del mismo INSERT viaja en un solo batch
+            for (Loan loan : created) {
+                batchLoans.insertLoan(loan);
+                loanStatistics.loanCreated(loan);
+            }
+            for (Loan loan : created) {
+                batchNotifications.insertNotification(Notification.loanConfirmation(loan));
+            }
+            batchSession.flushStatements();
+            if (!created.isEmpty()) {
+                collectionVersions.touch(CollectionVersions.Collection.LOANS);
+                collectionVersions.touch(CollectionVersions.Collection.BOOKS);
+            }
+
+            List<LoanBatchResult> response = new ArrayList<>(results.length);
+            for (LoanBatchResult result : results) {
+                response.add(result);
+            }
+            return new CustomResponse<>(response, 200,
+                    "Se registraron " + created.size() + " de " + loans.size() + " préstamos", false);
+        } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return new CustomResponse<>(null, 500,
+                    "Error al registrar los préstamos: " + e.getMessage(), true);
+        }
+    }
+
+    // Un préstamo vencido sigue abierto: cuenta como activo y se puede devolver o cancelar
+    private static boolean isOpen(Loan loan) {
+        return "ACTIVO".equals(loan.getEstado()) || "VENCIDO".equals(loan.getEstado());
+    }
+
     /**
      * Actualiza la información de un préstamo existente
      * @param loan Objeto Loan con los datos actualizados
@@ -217,9 +582,11 @@ public class LoanService {
 
             // Actualizar el préstamo
             loanMapper.updateLoan(loan);
+            collectionVersions.touch(CollectionVersions.Collection.LOANS);
 
             // Obtener el préstamo actualizado con detalles
             Loan updatedLoan = loanMapper.findByIdWithDetails(loan.getId());
+            loanStatistics.loanUpdated(existingLoan, updatedLoan);
 
             return new CustomResponse<>(updatedLoan, 200,
                     "Préstamo actualizado exitosamente", false);
@@ -245,23 +612,29 @@ public class LoanService {
                         "No se encontró el préstamo con ID: " + id, true);
             }
 
-            // Verificar que el préstamo está activo
-            if (!"ACTIVO".equals(loan.getEstado())) {
+            // Verificar que el préstamo está activo (o vencido)
+            if (!isOpen(loan)) {
                 return new CustomResponse<>(null, 400,
                         "El préstamo ya ha sido " +
                                 ("DEVUELTO".equals(loan.getEstado()) ? "devuelto" : "cancelado"), true);
             }
 
-            // Actualizar estado del préstamo
+            // Actualizar estado del préstamo solo si sigue activo (evita devolver el stock dos veces)
+            if (loanMapper.updateEstadoIfActive(id, "DEVUELTO") == 0) {
+                return new CustomResponse<>(null, 400,
+                        "El préstamo ya fue cerrado por otra operación", true);
+            }
+            loanStatistics.loanClosed(loan, "DEVUELTO");
             loan.setEstado("DEVUELTO");
-            loanMapper.updateEstado(id, "DEVUELTO");
 
-            // Obtener y actualizar el libro
-            Book book = bookMapper.findById(loan.getLibroId());
-            if (book != null) {
-                book.setStock(book.getStock() + 1);
-                book.setDisponible(true);
-                bookMapper.updateBook(book);
+            // Regresar el ejemplar al inventario
+            bookMapper.incrementStock(loan.getLibroId());
+            entityCache.evictBook(loan.getLibroId());
+            collectionVersions.touch(CollectionVersions.Collection.LOANS);
+            collectionVersions.touch(CollectionVersions.Collection.BOOKS);
+
+            if (digestEnabled) {
+                notificationMapper.insertNotification(Notification.returnConfirmation(loan));
             }
 
             // Obtener el préstamo actualizado con detalles
@@ -272,6 +645,8 @@ public class LoanService {
                             (loan.getLibro() != null ? loan.getLibro().getTitulo() : "seleccionado") +
                             "' ha sido devuelto al inventario", false);
         } catch (Exception e) {
+            // Sin esto el stock podría quedar devuelto sin su notificación pendiente
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return new CustomResponse<>(null, 500,
                     "Error al registrar la devolución: " + e.getMessage(), true);
         }
@@ -293,24 +668,26 @@ public class LoanService {
                         "No se encontró el préstamo con ID: " + id, true);
             }
 
-            // Verificar que el préstamo está activo
-            if (!"ACTIVO".equals(loan.getEstado())) {
+            // Verificar que el préstamo está activo (o vencido)
+            if (!isOpen(loan)) {
                 return new CustomResponse<>(null, 400,
                         "El préstamo ya ha sido " +
                                 ("DEVUELTO".equals(loan.getEstado()) ? "devuelto" : "cancelado"), true);
             }
 
-            // Actualizar estado del préstamo
+            // Actualizar estado del préstamo solo si sigue activo (evita devolver el stock dos veces)
+            if (loanMapper.updateEstadoIfActive(id, "CANCELADO") == 0) {
+                return new CustomResponse<>(null, 400,
+                        "El préstamo ya fue cerrado por otra operación", true);
+            }
+            loanStatistics.loanClosed(loan, "CANCELADO");
             loan.setEstado("CANCELADO");
-            loanMapper.updateEstado(id, "CANCELADO");
 
-            // Obtener y actualizar el libro
-            Book book = bookMapper.findById(loan.getLibroId());
-            if (book != null) {
-                book.setStock(book.getStock() + 1);
-                book.setDisponible(true);
-                bookMapper.updateBook(book);
-            }
+            // Regresar el ejemplar al inventario
+            bookMapper.incrementStock(loan.getLibroId());
+            entityCache.evictBook(loan.getLibroId());
+            collectionVersions.touch(CollectionVersions.Collection.LOANS);
+            collectionVersions.touch(CollectionVersions.Collection.BOOKS);
 
             // Obtener el préstamo actualizado con detalles
             Loan updatedLoan = loanMapper.findByIdWithDetails(id);
@@ -320,6 +697,8 @@ public class LoanService {
                             (loan.getLibro() != null ? loan.getLibro().getTitulo() : "seleccionado") +
                             "' ha sido devuelto al inventario", false);
         } catch (Exception e) {
+            // Sin esto el préstamo podría quedar CANCELADO sin regresar el ejemplar al stock
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return new CustomResponse<>(null, 500,
                     "Error al cancelar el préstamo: " + e.getMessage(), true);
         }
@@ -341,14 +720,16 @@ public class LoanService {
                         "No se encontró el préstamo con ID: " + id, true);
             }
 
-            // Verificar que el préstamo no está activo
-            if ("ACTIVO".equals(loan.getEstado())) {
+            // Verificar que el préstamo no está activo ni vencido
+            if (isOpen(loan)) {
                 return new CustomResponse<>(null, 400,
                         "No se puede eliminar un préstamo activo. Debe registrar la devolución o cancelarlo primero", true);
             }
 
             // Eliminar el préstamo
             loanMapper.deleteLoan(id);
+            loanStatistics.loanDeleted(loan);
+            collectionVersions.touch(CollectionVersions.Collection.LOANS);
 
             return new CustomResponse<>(null, 200,
                     "Registro de préstamo eliminado exitosamente", false);
@@ -0,0 +1,428 @@
+package com.rocket.rocket.service;
+
+import com.rocket.rocket.mapper.LoanMapper;
+import com.rocket.rocket.model.Book;
+import com.rocket.rocket.model.Loan;
+import com.rocket.rocket.model.LoanStats;
+import com.rocket.rocket.model.Student;
+import com.rocket.rocket.utils.AfterCommit;
+import com.rocket.rocket.utils.CustomResponse;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Estadísticas de préstamos en memoria: totales por estado, préstamos por libro, por estudiante
+ * y por día, y los libros y estudiantes con más préstamos.
+ * <p>
+ * Se construyen al iniciar recorriendo PRESTAMOS y {@link LoanService} las actualiza después del commit
+ * de cada alta, devolución, cancelación, edición o baja. Los contadores son LongAdder, así las escrituras
+ * concurrentes no se bloquean entre sí; el candado de lectura/escritura solo separa las actualizaciones
+ * del reemplazo de los contadores al reconstruir. Cada rocket.stats.refresh-ms se reconstruyen
+ * para recoger cambios de otras instancias y del barrido de vencidos.
+ * <p>
+ * Los rankings se calculan con un montículo acotado a rocket.stats.top-size y se guardan hasta que
+ * cambie algún contador, como mucho una vez cada rocket.stats.top-refresh-ms.
+ */
+@Component
+public class LoanStatistics {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanStatistics.class);
+    public static final int MAX_DAYS = 366;
+
+    private final LoanMapper loanMapper;
+    private final EntityCache entityCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean topDirty = new AtomicBoolean(true);
+    private final Object topMonitor = new Object();
+
+    private volatile Counters counters = new Counters();
+    // Cambios confirmados mientras se reconstruye, por préstamo; se aplican otra vez si la lectura no los vio
+    private volatile ConcurrentMap<Long, Queue<Change>> pending;
+    private volatile Top top = new Top(Collections.emptyList(), Collections.emptyList(), 0);
+    private volatile LocalDateTime rebuiltAt;
+    private volatile boolean ready;
+
+    @Value("${rocket.stats.top-size:10}")
+    private int topSize = 10;
+
+    @Value("${rocket.stats.top-refresh-ms:1000}")
+    private long topRefreshMs = 1000;
+
+    public LoanStatistics(LoanMapper loanMapper, EntityCache entityCache, PlatformTransactionManager transactionManager) {
+        this.loanMapper = loanMapper;
+        this.entityCache = entityCache;
+        // Siempre contra el primario: la réplica puede ir atrasada respecto a los cambios pendientes
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Reconstruye los contadores a partir de PRESTAMOS
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${rocket.stats.refresh-ms:3600000}",
+            fixedDelayString = "${rocket.stats.refresh-ms:3600000}")
+    public void rebuild() {
+        ConcurrentMap<Long, Queue<Change>> changes = new ConcurrentHashMap<>();
+        lock.writeLock().lock();
+        try {
+            pending = changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Counters rebuilt = new Counters();
+        Map<Long, Facts> seen = new HashMap<>();
+        long rows;
+        try {
+            rows = transactionTemplate.execute(status -> {
+                long count = 0;
+                try (Cursor<Loan> cursor = loanMapper.streamForStatistics()) {
+                    for (Loan loan : cursor) {
+                        Facts facts = Facts.of(loan);
+                        rebuilt.apply(facts, 1);
+                        if (changes.containsKey(loan.getId())) {
+                            seen.put(loan.getId(), facts);
+                        }
+                        count++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            });
+        } catch (Exception e) {
+            log.error("No se pudieron construir las estadísticas de préstamos: {}", e.getMessage());
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Queue<Change>> entry : changes.entrySet()) {
+                // Se aplican solo los cambios que parten del estado que leyó el recorrido
+                Facts view = seen.get(entry.getKey());
+                for (Change change : entry.getValue()) {
+                    if (Objects.equals(view, change.before)) {
+                        rebuilt.apply(change.before, -1);
+                        rebuilt.apply(change.after, 1);
+                        view = change.after;
+                    }
+                }
+            }
+            pending = null;
+            counters = rebuilt;
+            rebuiltAt = LocalDateTime.now();
+            topDirty.set(true);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Estadísticas de préstamos construidas con {} préstamos", rows);
+    }
+
+    /**
+     * Cuenta un préstamo nuevo después del commit de la transacción actual
+     * @param loan Préstamo registrado (con ID, libro, estudiante, fecha y estado)
+     */
+    public void loanCreated(Loan loan) {
+        change(loan.getId(), null, Facts.of(loan));
+    }
+
+    /**
+     * Cuenta el cierre de un préstamo abierto después del commit de la transacción actual
+     * @param loan Préstamo con su estado anterior al cierre
+     * @param estado Nuevo estado (DEVUELTO o CANCELADO)
+     */
+    public void loanClosed(Loan loan, String estado) {
+        Facts before = Facts.of(loan);
+        change(loan.getId(), before, new Facts(before.libroId, before.usuarioId, before.fecha, State.of(estado)));
+    }
+
+    /**
+     * Reemplaza los datos de un préstamo editado después del commit de la transacción actual
+     * @param before Préstamo antes de la edición
+     * @param after Préstamo después de la edición
+     */
+    public void loanUpdated(Loan before, Loan after) {
+        change(before.getId(), Facts.of(before), Facts.of(after));
+    }
+
+    /**
+     * Descuenta un préstamo eliminado después del commit de la transacción actual
+     * @param loan Préstamo eliminado
+     */
+    public void loanDeleted(Loan loan) {
+        change(loan.getId(), Facts.of(loan), null);
+    }
+
+    /**
+     * @param days Días hacia atrás desde hoy para los préstamos por día (1 a 366)
+     * @param limit Elementos de cada ranking (1 a rocket.stats.top-size)
+     * @return CustomResponse con las estadísticas (200), parámetros fuera de rango (400),
+     *         estadísticas aún sin construir (503) o error (500)
+     */
+    public CustomResponse<LoanStats> getStats(int days, int limit) {
+        if (days < 1 || days > MAX_DAYS) {
+            return new CustomResponse<>(null, 400, "El parámetro dias debe estar entre 1 y " + MAX_DAYS, true);
+        }
+        if (limit < 1 || limit > topSize) {
+            return new CustomResponse<>(null, 400, "El parámetro top debe estar entre 1 y " + topSize, true);
+        }
+        if (!ready) {
+            return new CustomResponse<>(null, 503, "Las estadísticas de préstamos se están construyendo", true);
+        }
+        try {
+            Counters current = counters;
+            LocalDate today = LocalDate.now();
+            Map<LocalDate, Long> perDay = new LinkedHashMap<>();
+            for (int i = days - 1; i >= 0; i--) {
+                LocalDate day = today.minusDays(i);
+                LongAdder count = current.byDay.get(day);
+                perDay.put(day, count != null ? count.sum() : 0L);
+            }
+
+            Top ranking = top();
+            List<LoanStats.Ranking> books = new ArrayList<>();
+            for (Ranked ranked : ranking.books.subList(0, Math.min(limit, ranking.books.size()))) {
+                Book book = entityCache.findBook(ranked.id);
+                books.add(new LoanStats.Ranking(ranked.id, book != null ? book.getTitulo() : null, ranked.count));
+            }
+            List<LoanStats.Ranking> students = new ArrayList<>();
+            for (Ranked ranked : ranking.students.subList(0, Math.min(limit, ranking.students.size()))) {
+                Student student = entityCache.findStudent(ranked.id);
+                students.add(new LoanStats.Ranking(ranked.id,
+                        student != null ? student.getNombre() + " " + student.getApellidos() : null, ranked.count));
+            }
+
+            LoanStats stats = new LoanStats(current.total.sum(), current.open.sum(), current.returned.sum(),
+                    current.cancelled.sum(), perDay, books, students, rebuiltAt);
+            return new CustomResponse<>(stats, 200, "Estadísticas de préstamos", false);
+        } catch (Exception e) {
+            return new CustomResponse<>(null, 500, "Error interno en el servidor: " + e.getMessage(), true);
+        }
+    }
+
+    private void change(Long id, Facts before, Facts after) {
+        AfterCommit.run(() -> {
+            // Candado compartido: las actualizaciones no se esperan entre sí, solo al reemplazo de contadores
+            lock.readLock().lock();
+            try {
+                Counters current = counters;
+                current.apply(before, -1);
+                current.apply(after, 1);
+                topDirty.set(true);
+                ConcurrentMap<Long, Queue<Change>> changes = pending;
+                if (changes != null && id != null) {
+                    changes.computeIfAbsent(id, key -> new ConcurrentLinkedQueue<>()).add(new Change(before, after));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    private Top top() {
+        Top current = top;
+        if (!topDirty.get() || System.currentTimeMillis() - current.computedAt < topRefreshMs) {
+            return current;
+        }
+        synchronized (topMonitor) {
+            current = top;
+            if (topDirty.get() && System.currentTimeMillis() - current.computedAt >= topRefreshMs) {
+                topDirty.set(false);
+                Counters source = counters;
+                current = new Top(highest(source.byBook, topSize), highest(source.byStudent, topSize),
+                        System.currentTimeMillis());
+                top = current;
+            }
+            return current;
+        }
+    }
+
+    // Montículo mínimo de tamaño n: O(m log n) sobre m contadores, sin ordenar todos
+    private static List<Ranked> highest(Map<Long, LongAdder> counts, int n) {
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(n + 1);
+        for (Map.Entry<Long, LongAdder> entry : counts.entrySet()) {
+            long count = entry.getValue().sum();
+            if (count <= 0) {
+                continue;
+            }
+            heap.offer(new Ranked(entry.getKey(), count));
+            if (heap.size() > n) {
+                heap.poll();
+            }
+        }
+        List<Ranked> result = new ArrayList<>(heap);
+        result.sort(Collections.reverseOrder());
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Estado de un préstamo para las estadísticas; ACTIVO y VENCIDO cuentan igual
+     */
+    private enum State {
+        OPEN, RETURNED, CANCELLED, OTHER;
+
+        static State of(String estado) {
+            if ("ACTIVO".equals(estado) || "VENCIDO".equals(estado)) {
+                return OPEN;
+            }
+            if ("DEVUELTO".equals(estado)) {
+                return RETURNED;
+            }
+            return "CANCELADO".equals(estado) ? CANCELLED : OTHER;
+        }
+    }
+
+    /**
+     * Lo que aporta un préstamo a los contadores
+     */
+    private static final class Facts {
+
+        private final Long libroId;
+        private final Long usuarioId;
+        private final LocalDate fecha;
+        private final State state;
+
+        Facts(Long libroId, Long usuarioId, LocalDate fecha, State state) {
+            this.libroId = libroId;
+            this.usuarioId = usuarioId;
+            this.fecha = fecha;
+            this.state = state;
+        }
+
+        static Facts of(Loan loan) {
+            return loan == null ? null
+                    : new Facts(loan.getLibroId(), loan.getUsuarioId(), loan.getFechaPrestamo(), State.of(loan.getEstado()));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Facts)) {
+                return false;
+            }
+            Facts other = (Facts) o;
+            return Objects.equals(libroId, other.libroId) && Objects.equals(usuarioId, other.usuarioId)
+                    && Objects.equals(fecha, other.fecha) && state == other.state;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(libroId, usuarioId, fecha, state);
+        }
+    }
+
+    private static final class Change {
+
+        private final Facts before;
+        private final Facts after;
+
+        Change(Facts before, Facts after) {
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    /**
+     * Contadores de una construcción; se reemplazan completos al reconstruir
+     */
+    private static final class Counters {
+
+        private final LongAdder total = new LongAdder();
+        private final LongAdder open = new LongAdder();
+        private final LongAdder returned = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+        private final ConcurrentMap<Long, LongAdder> byBook = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Long, LongAdder> byStudent = new ConcurrentHashMap<>();
+        private final ConcurrentMap<LocalDate, LongAdder> byDay = new ConcurrentHashMap<>();
+
+        void apply(Facts facts, int delta) {
+            if (facts == null) {
+                return;
+            }
+            total.add(delta);
+            if (facts.state == State.OPEN) {
+                open.add(delta);
+            } else if (facts.state == State.RETURNED) {
+                returned.add(delta);
+            } else if (facts.state == State.CANCELLED) {
+                cancelled.add(delta);
+            }
+            add(byBook, facts.libroId, delta);
+            add(byStudent, facts.usuarioId, delta);
+            add(byDay, facts.fecha, delta);
+        }
+
+        private static <K> void add(ConcurrentMap<K, LongAdder> counts, K key, int delta) {
+            if (key != null) {
+                counts.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+            }
+        }
+    }
+
+    private static final class Ranked implements Comparable<Ranked> {
+
+        private final Long id;
+        private final long count;
+
+        Ranked(Long id, long count) {
+            this.id = id;
+            this.count = count;
+        }
+
+        // Menor cantidad primero; con la misma cantidad, el ID mayor queda abajo
+        @Override
+        public int compareTo(Ranked other) {
+            int byCount = Long.compare(count, other.count);
+            return byCount != 0 ? byCount : Long.compare(other.id, id);
+        }
+    }
+
+    private static final class Top {
+
+        private final List<Ranked> books;
+        private final List<Ranked> students;
+        private final long computedAt;
+
+        Top(List<Ranked> books, List<Ranked> students, long computedAt) {
+            this.books = books;
+            this.students = students;
+            this.computedAt = computedAt;
+        }
+    }
+}
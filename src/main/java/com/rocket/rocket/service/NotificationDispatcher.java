@@ -0,0 +1,257 @@
+package com.rocket.rocket.service;
+
+import com.rocket.rocket.mapper.LoanMapper;
+import com.rocket.rocket.mapper.NotificationMapper;
+import com.rocket.rocket.model.Loan;
+import com.rocket.rocket.model.Notification;
+import com.rocket.rocket.model.Student;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Vacía la bandeja de salida de correos (tabla NOTIFICACIONES) en segundo plano.
+ * Los préstamos solo insertan la notificación pendiente; el envío SMTP ocurre aquí,
+ * fuera de la transacción y del hilo de la petición.
+ * <p>
+ * En modo resumen (rocket.outbox.digest.enabled) las confirmaciones de préstamo y de devolución
+ * se agrupan por estudiante: cuando su notificación pendiente más antigua cumple
+ * rocket.outbox.digest.window-minutes, se envía un solo correo con todas ellas, y los correos
+ * de cada lote salen por una misma conexión SMTP.
+ */
+@Service
+public class NotificationDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationDispatcher.class);
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final int MAX_IN_LIST = 1000;
+    private static final List<String> DIGEST_TYPES = Collections.unmodifiableList(Arrays.asList(
+            Notification.CONFIRMACION_PRESTAMO, Notification.CONFIRMACION_DEVOLUCION));
+
+    private final NotificationMapper notificationMapper;
+    private final LoanMapper loanMapper;
+    private final EmailService emailService;
+    private final Executor outboxExecutor;
+
+    @Value("${rocket.outbox.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${rocket.outbox.batch-size:50}")
+    private int batchSize = 50;
+
+    @Value("${rocket.outbox.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    @Value("${rocket.outbox.backoff-base-seconds:30}")
+    private long backoffBaseSeconds = 30;
+
+    @Value("${rocket.outbox.stale-after-minutes:10}")
+    private long staleAfterMinutes = 10;
+
+    @Value("${rocket.outbox.digest.enabled:false}")
+    private boolean digestEnabled = false;
+
+    @Value("${rocket.outbox.digest.window-minutes:1440}")
+    private long digestWindowMinutes = 1440;
+
+    public NotificationDispatcher(NotificationMapper notificationMapper, LoanMapper loanMapper,
+                                  EmailService emailService,
+                                  @Qualifier("outboxExecutor") Executor outboxExecutor) {
+        this.notificationMapper = notificationMapper;
+        this.loanMapper = loanMapper;
+        this.emailService = emailService;
+        this.outboxExecutor = outboxExecutor;
+    }
+
+    /**
+     * Procesa lotes pendientes hasta vaciar la bandeja de salida
+     */
+    @Scheduled(fixedDelayString = "${rocket.outbox.poll-interval-ms:2000}")
+    public void drain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            notificationMapper.releaseStale(LocalDateTime.now().minusMinutes(staleAfterMinutes));
+            while (drainOnce() == batchSize) {
+                // Lote completo: probablemente quedan más pendientes
+            }
+            if (digestEnabled) {
+                while (drainDigestOnce() > 0) {
+                    // Un lote por cada grupo de hasta batchSize estudiantes
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error al procesar la bandeja de salida de correos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reserva un lote de notificaciones y las envía en el pool de trabajadores
+     * @return Número de notificaciones procesadas en el lote
+     */
+    public int drainOnce() {
+        String lote = UUID.randomUUID().toString();
+        if (notificationMapper.claimBatch(lote, digestEnabled ? DIGEST_TYPES : null, batchSize) == 0) {
+            return 0;
+        }
+
+        List<Notification> batch = notificationMapper.findByLote(lote);
+        List<CompletableFuture<Void>> sends = new ArrayList<>(batch.size());
+        for (Notification notification : batch) {
+            sends.add(CompletableFuture.runAsync(() -> deliver(notification), outboxExecutor));
+        }
+        CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).join();
+        return batch.size();
+    }
+
+    /**
+     * Reserva las notificaciones de hasta batchSize estudiantes cuya ventana de resumen ya cerró
+     * y envía un correo por estudiante, todos por la misma conexión SMTP
+     * @return Número de notificaciones procesadas en el lote
+     */
+    public int drainDigestOnce() {
+        String lote = UUID.randomUUID().toString();
+        LocalDateTime windowStart = LocalDateTime.now().minusMinutes(digestWindowMinutes);
+        if (notificationMapper.claimDigestBatch(lote, DIGEST_TYPES, windowStart, batchSize) == 0) {
+            return 0;
+        }
+
+        List<Notification> batch = notificationMapper.findByLote(lote);
+        Map<Long, Loan> loans = findLoans(batch);
+
+        // Agrupar por estudiante conservando el orden de creación
+        Map<Long, List<Notification>> byStudent = new LinkedHashMap<>();
+        for (Notification notification : batch) {
+            if (!loans.containsKey(notification.getPrestamoId())) {
+                notificationMapper.markFailed(notification.getId(), attempts(notification) + 1,
+                        "No se encontró el préstamo con ID: " + notification.getPrestamoId());
+                continue;
+            }
+            byStudent.computeIfAbsent(notification.getUsuarioId(), id -> new ArrayList<>()).add(notification);
+        }
+
+        Map<MimeMessage, List<Notification>> messages = new LinkedHashMap<>();
+        for (List<Notification> notifications : byStudent.values()) {
+            List<Loan> prestamos = new ArrayList<>();
+            List<Loan> devoluciones = new ArrayList<>();
+            for (Notification notification : notifications) {
+                Loan loan = loans.get(notification.getPrestamoId());
+                if (Notification.CONFIRMACION_DEVOLUCION.equals(notification.getTipo())) {
+                    devoluciones.add(loan);
+                } else {
+                    prestamos.add(loan);
+                }
+            }
+            Student student = loans.get(notifications.get(0).getPrestamoId()).getUsuario();
+            try {
+                messages.put(emailService.buildLoanDigest(student, prestamos, devoluciones), notifications);
+            } catch (Exception e) {
+                notifications.forEach(n -> scheduleRetry(n, e));
+            }
+        }
+
+        Map<Object, Exception> failed = new HashMap<>();
+        Exception sendError = null;
+        try {
+            emailService.sendAll(new ArrayList<>(messages.keySet()));
+        } catch (MailSendException e) {
+            failed.putAll(e.getFailedMessages());
+            sendError = e;
+        } catch (Exception e) {
+            sendError = e;
+        }
+        for (Map.Entry<MimeMessage, List<Notification>> entry : messages.entrySet()) {
+            // Sin detalle por mensaje (por ejemplo, falló la conexión) se reintentan todos
+            Exception error = failed.isEmpty() ? sendError : failed.get(entry.getKey());
+            for (Notification notification : entry.getValue()) {
+                if (error == null) {
+                    notificationMapper.markSent(notification.getId());
+                } else {
+                    scheduleRetry(notification, error);
+                }
+            }
+        }
+        return batch.size();
+    }
+
+    // Préstamos con estudiante y libro de todas las notificaciones del lote, por ID
+    private Map<Long, Loan> findLoans(List<Notification> batch) {
+        List<Long> ids = new ArrayList<>();
+        for (Notification notification : batch) {
+            ids.add(notification.getPrestamoId());
+        }
+        Map<Long, Loan> loans = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_IN_LIST, ids.size()));
+            for (Loan loan : loanMapper.findByIdsWithDetails(chunk)) {
+                loans.put(loan.getId(), loan);
+            }
+        }
+        return loans;
+    }
+
+    private void deliver(Notification notification) {
+        try {
+            Loan loan = loanMapper.findByIdWithDetails(notification.getPrestamoId());
+            if (loan == null) {
+                notificationMapper.markFailed(notification.getId(), attempts(notification) + 1,
+                        "No se encontró el préstamo con ID: " + notification.getPrestamoId());
+                return;
+            }
+            if (Notification.RECORDATORIO_VENCIDO.equals(notification.getTipo())) {
+                emailService.sendOverdueReminderEmail(loan.getUsuario(), loan, loan.getLibro());
+            } else if (Notification.CONFIRMACION_DEVOLUCION.equals(notification.getTipo())) {
+                // Pendiente de cuando el modo resumen estaba activo: se envía como resumen de una sola devolución
+                emailService.sendAll(Collections.singletonList(emailService.buildLoanDigest(
+                        loan.getUsuario(), Collections.<Loan>emptyList(), Collections.singletonList(loan))));
+            } else {
+                emailService.sendLoanConfirmationEmail(loan.getUsuario(), loan, loan.getLibro());
+            }
+            notificationMapper.markSent(notification.getId());
+        } catch (Exception e) {
+            scheduleRetry(notification, e);
+        }
+    }
+
+    private void scheduleRetry(Notification notification, Exception cause) {
+        int attempts = attempts(notification) + 1;
+        String error = truncate(cause.getMessage());
+        if (attempts >= maxAttempts) {
+            log.warn("Notificación {} descartada tras {} intentos: {}", notification.getId(), attempts, error);
+            notificationMapper.markFailed(notification.getId(), attempts, error);
+            return;
+        }
+        // Espera exponencial: base, 2*base, 4*base...
+        long delay = backoffBaseSeconds << Math.min(attempts - 1, 16);
+        notificationMapper.markRetry(notification.getId(), attempts, LocalDateTime.now().plusSeconds(delay), error);
+    }
+
+    private static int attempts(Notification notification) {
+        return notification.getIntentos() != null ? notification.getIntentos() : 0;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
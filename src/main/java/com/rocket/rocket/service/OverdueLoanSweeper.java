@@ -0,0 +1,182 @@
+package com.rocket.rocket.service;
+
+import com.rocket.rocket.mapper.LoanMapper;
+import com.rocket.rocket.mapper.NotificationMapper;
+import com.rocket.rocket.model.Loan;
+import com.rocket.rocket.model.Notification;
+import com.rocket.rocket.utils.BatchUpdates;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Marca como VENCIDO los préstamos activos cuya fecha de devolución ya pasó y encola un recordatorio por correo.
+ * <p>
+ * Recorre PRESTAMOS por bloques de rocket.overdue.chunk-size IDs, cada uno en su propia transacción:
+ * los UPDATE viajan en un JDBC batch y las notificaciones se insertan en la misma transacción,
+ * solo para los préstamos que este bloque marcó. Si el proceso se interrumpe, los bloques confirmados
+ * ya no aparecen como ACTIVO y la siguiente ejecución continúa con los que faltan.
+ * <p>
+ * Métricas: rocket.overdue.chunk (timer por bloque), rocket.overdue.marked, rocket.overdue.skipped,
+ * rocket.overdue.last-run.marked, rocket.overdue.last-run.seconds y rocket.overdue.last-id (progreso).
+ */
+@Service
+public class OverdueLoanSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueLoanSweeper.class);
+
+    private final SqlSessionTemplate batchSession;
+    private final TransactionTemplate transactionTemplate;
+    private final CollectionVersions collectionVersions;
+
+    private final Timer chunkTimer;
+    private final Counter marked;
+    private final Counter skipped;
+    private final AtomicLong lastRunMarked = new AtomicLong();
+    private final AtomicLong lastRunMillis = new AtomicLong();
+    private final AtomicLong lastId = new AtomicLong();
+
+    @Value("${rocket.overdue.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${rocket.overdue.chunk-size:500}")
+    private int chunkSize = 500;
+
+    public OverdueLoanSweeper(SqlSessionFactory sqlSessionFactory, PlatformTransactionManager transactionManager,
+                              CollectionVersions collectionVersions, MeterRegistry registry) {
+        this.batchSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.collectionVersions = collectionVersions;
+        this.chunkTimer = Timer.builder("rocket.overdue.chunk")
+                .description("Duración de cada bloque del barrido de préstamos vencidos")
+                .register(registry);
+        this.marked = Counter.builder("rocket.overdue.marked")
+                .description("Préstamos marcados como VENCIDO")
+                .register(registry);
+        this.skipped = Counter.builder("rocket.overdue.skipped")
+                .description("Préstamos que otra operación cerró antes de marcarlos")
+                .register(registry);
+        Gauge.builder("rocket.overdue.last-run.marked", lastRunMarked, AtomicLong::get)
+                .description("Préstamos marcados en la última ejecución")
+                .register(registry);
+        Gauge.builder("rocket.overdue.last-run.seconds", lastRunMillis, millis -> millis.get() / 1000.0)
+                .description("Duración de la última ejecución")
+                .register(registry);
+        Gauge.builder("rocket.overdue.last-id", lastId, AtomicLong::get)
+                .description("Último ID de préstamo procesado por la ejecución en curso o la anterior")
+                .register(registry);
+    }
+
+    /**
+     * Ejecución programada (por defecto todos los días a la 01:15)
+     */
+    @Scheduled(cron = "${rocket.overdue.cron:0 15 1 * * *}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            sweepAll();
+        } catch (Exception e) {
+            log.error("Error en el barrido de préstamos vencidos (se retomará en la siguiente ejecución): {}",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Recorre todos los préstamos vencidos por bloques
+     * @return Número de préstamos marcados como VENCIDO
+     */
+    public long sweepAll() {
+        long start = System.nanoTime();
+        long total = 0;
+        long afterId = 0;
+        lastId.set(0);
+        while (true) {
+            long chunkStart = System.nanoTime();
+            long from = afterId;
+            ChunkResult chunk = transactionTemplate.execute(status -> processChunk(from));
+            chunkTimer.record(System.nanoTime() - chunkStart, TimeUnit.NANOSECONDS);
+            if (chunk == null || chunk.read == 0) {
+                break;
+            }
+            total += chunk.marked;
+            afterId = chunk.lastId;
+            lastId.set(afterId);
+            log.info("Barrido de vencidos: {} préstamos marcados hasta el ID {}", total, afterId);
+            if (chunk.read < chunkSize) {
+                break;
+            }
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        lastRunMarked.set(total);
+        lastRunMillis.set(millis);
+        if (total > 0) {
+            log.info("Barrido de vencidos terminado: {} préstamos en {} ms ({} por segundo)",
+                    total, millis, millis > 0 ? total * 1000 / millis : total);
+        }
+        return total;
+    }
+
+    private ChunkResult processChunk(long afterId) {
+        LoanMapper loans = batchSession.getMapper(LoanMapper.class);
+        NotificationMapper notifications = batchSession.getMapper(NotificationMapper.class);
+
+        List<Loan> overdue = loans.findOverdueLoans(afterId, chunkSize);
+        if (overdue.isEmpty()) {
+            return new ChunkResult(0, 0, afterId);
+        }
+        for (Loan loan : overdue) {
+            loans.markOverdue(loan.getId());
+        }
+        int[] counts = BatchUpdates.counts(batchSession.flushStatements(), overdue.size());
+
+        // Solo los que este bloque marcó reciben recordatorio; los demás se cerraron mientras tanto
+        List<Loan> newlyOverdue = new ArrayList<>();
+        for (int i = 0; i < overdue.size(); i++) {
+            if (counts[i] > 0) {
+                newlyOverdue.add(overdue.get(i));
+            }
+        }
+        for (Loan loan : newlyOverdue) {
+            notifications.insertNotification(Notification.overdueReminder(loan));
+        }
+        batchSession.flushStatements();
+        if (!newlyOverdue.isEmpty()) {
+            collectionVersions.touch(CollectionVersions.Collection.LOANS);
+        }
+
+        marked.increment(newlyOverdue.size());
+        skipped.increment(overdue.size() - newlyOverdue.size());
+        return new ChunkResult(overdue.size(), newlyOverdue.size(), overdue.get(overdue.size() - 1).getId());
+    }
+
+    private static final class ChunkResult {
+        final int read;
+        final int marked;
+        final long lastId;
+
+        ChunkResult(int read, int marked, long lastId) {
+            this.read = read;
+            this.marked = marked;
+            this.lastId = lastId;
+        }
+    }
+}
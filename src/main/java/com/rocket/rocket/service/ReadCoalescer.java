@@ -0,0 +1,89 @@
+package com.rocket.rocket.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa lecturas idénticas concurrentes (single-flight): mientras una consulta está en curso,
+ * las llamadas con la misma clave esperan su resultado en lugar de lanzar otra.
+ * <p>
+ * La clave debe incluir la versión de la colección ({@link CollectionVersions}); así una llamada
+ * que llega después de una escritura confirmada no recibe el resultado de una consulta anterior.
+ * La lectura corre sin transacción, así que va al primario aunque la réplica esté activa: el resultado
+ * se publica con el ETag de esa versión y una réplica atrasada devolvería filas anteriores a ella.
+ * Solo la llamada que ejecuta la consulta toma una conexión; las demás esperan sin conexión. Dentro de
+ * una transacción existente la lectura se ejecuta ahí mismo y no se comparte, porque puede ver cambios
+ * que aún no se confirman.
+ * <p>
+ * Métrica: rocket.read.coalesced con las etiquetas name y result (executed o shared).
+ */
+@Component
+public class ReadCoalescer {
+
+    private final ConcurrentMap<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+
+    public ReadCoalescer(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Ejecuta la lectura sin abrir transacción (en el primario) o se une a una idéntica que ya está en curso
+     * @param name Nombre de la lectura (también etiqueta de la métrica)
+     * @param loader Lectura a ejecutar; el resultado se comparte y no se debe modificar
+     * @param key Valores que distinguen la lectura: argumentos y versión de la colección
+     * @return Resultado de la lectura
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String name, Supplier<T> loader, Object... key) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.get();
+        }
+
+        List<Object> flightKey = new ArrayList<>(key.length + 1);
+        flightKey.add(name);
+        flightKey.addAll(Arrays.asList(key));
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            counter(name, "shared").increment();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        counter(name, "executed").increment();
+        try {
+            T result = loader.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private Counter counter(String name, String result) {
+        return Counter.builder("rocket.read.coalesced")
+                .description("Lecturas ejecutadas y lecturas que compartieron una consulta en curso")
+                .tag("name", name)
+                .tag("result", result)
+                .register(registry);
+    }
+}
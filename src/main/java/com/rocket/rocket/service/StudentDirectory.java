@@ -0,0 +1,380 @@
+package com.rocket.rocket.service;
+
+import com.rocket.rocket.mapper.StudentMapper;
+import com.rocket.rocket.model.Student;
+import com.rocket.rocket.utils.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Directorio en memoria de USUARIOS para las búsquedas de estudiantes sin recorrer la tabla.
+ * <p>
+ * Mantiene tres estructuras sobre copias de los estudiantes:
+ * <ul>
+ *     <li>Mapas hash para matrícula y email exactos.</li>
+ *     <li>Un trie de prefijos del email (en minúsculas), desde el inicio y desde cada segmento
+ *     separado por '@', '.', '_' o '-', para autocompletar.</li>
+ *     <li>Un índice de palabras de nombre y apellidos, normalizadas como en {@link BookSearchIndex}.</li>
+ * </ul>
+ * Se construye al iniciar, se actualiza después del commit de cada alta, edición o baja
+ * y se reconstruye cada rocket.directory.refresh-ms para recoger cambios de otras instancias.
+ */
+@Component
+public class StudentDirectory {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentDirectory.class);
+    private static final String EMAIL_SEPARATORS = "@._-";
+
+    private final StudentMapper studentMapper;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Index index = new Index();
+    // Cambios confirmados mientras se reconstruye; se aplican otra vez sobre el índice nuevo
+    private List<Consumer<Index>> pending;
+    private volatile boolean ready;
+
+    public StudentDirectory(StudentMapper studentMapper) {
+        this.studentMapper = studentMapper;
+    }
+
+    /**
+     * Construye el directorio completo a partir de USUARIOS
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${rocket.directory.refresh-ms:300000}",
+            fixedDelayString = "${rocket.directory.refresh-ms:300000}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index rebuilt = new Index();
+        try {
+            for (Student student : studentMapper.findAll()) {
+                rebuilt.add(student);
+            }
+        } catch (Exception e) {
+            // Sin directorio las búsquedas siguen funcionando con las consultas a USUARIOS
+            log.error("No se pudo construir el directorio de estudiantes: {}", e.getMessage());
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Consumer<Index> change : pending) {
+                change.accept(rebuilt);
+            }
+            pending = null;
+            index = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Directorio de estudiantes construido con {} estudiantes", rebuilt.students.size());
+    }
+
+    /**
+     * @return true si el directorio ya se construyó y puede atender búsquedas
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Agrega o reemplaza un estudiante después del commit de la transacción actual
+     * @param student Estudiante con sus datos vigentes
+     */
+    public void put(Student student) {
+        if (student == null || student.getId() == null) {
+            return;
+        }
+        Student copy = copy(student);
+        apply(index -> {
+            index.remove(copy.getId());
+            index.add(copy);
+        });
+    }
+
+    /**
+     * Quita un estudiante después del commit de la transacción actual
+     * @param id ID del estudiante eliminado
+     */
+    public void remove(Long id) {
+        if (id != null) {
+            apply(index -> index.remove(id));
+        }
+    }
+
+    /**
+     * @param matricula Matrícula exacta
+     * @return Copia del estudiante o null si no existe
+     */
+    public Student findByMatricula(String matricula) {
+        lock.readLock().lock();
+        try {
+            return copy(index.students.get(index.byMatricula.get(matricula)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param email Email exacto
+     * @return Copia del estudiante o null si no existe
+     */
+    public Student findByEmail(String email) {
+        lock.readLock().lock();
+        try {
+            return copy(index.students.get(index.byEmail.get(email)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca estudiantes cuyo email, o alguno de sus segmentos, empieza con el texto
+     * @param prefix Texto a buscar, sin importar mayúsculas (por ejemplo "juan", "utez" o "2021")
+     * @return Copias de los estudiantes encontrados, ordenadas por email
+     */
+    public List<Student> findByEmailPrefix(String prefix) {
+        String key = prefix == null ? "" : prefix.trim().toLowerCase(Locale.ROOT);
+        List<Student> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : index.emails.find(key)) {
+                result.add(copy(index.students.get(id)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparing(Student::getEmail, Comparator.nullsLast(Comparator.naturalOrder())));
+        return result;
+    }
+
+    /**
+     * Busca estudiantes en cuyo nombre o apellidos cada palabra de la consulta es el inicio de alguna palabra,
+     * sin importar mayúsculas ni acentos ("garc ma" encuentra a "María García")
+     * @param query Palabras a buscar
+     * @return IDs de los estudiantes encontrados (vacío si la consulta no tiene palabras)
+     */
+    public Set<Long> findIdsByName(String query) {
+        String[] words = tokens(query);
+        if (words.length == 0) {
+            return new HashSet<>();
+        }
+        lock.readLock().lock();
+        try {
+            Set<Long> result = null;
+            for (String word : words) {
+                Set<Long> matches = new HashSet<>();
+                for (Set<Long> ids : index.names.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+                    matches.addAll(ids);
+                }
+                if (result == null) {
+                    result = matches;
+                } else {
+                    result.retainAll(matches);
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<Index> change) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                change.accept(index);
+                if (pending != null) {
+                    pending.add(change);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private static String[] tokens(String text) {
+        String normalized = BookSearchIndex.normalize(text);
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    private static Student copy(Student source) {
+        if (source == null) {
+            return null;
+        }
+        return new Student(source.getId(), source.getNombre(), source.getApellidos(),
+                source.getTelefono(), source.getEmail(), source.getMatricula());
+    }
+
+    /**
+     * Estructuras del directorio; se reemplazan completas en cada reconstrucción
+     */
+    private static final class Index {
+
+        private final Map<Long, Student> students = new HashMap<>();
+        private final Map<String, Long> byMatricula = new HashMap<>();
+        private final Map<String, Long> byEmail = new HashMap<>();
+        private final EmailTrie emails = new EmailTrie();
+        // Palabra normalizada -> IDs; ordenado para buscar por prefijo con subMap
+        private final NavigableMap<String, Set<Long>> names = new TreeMap<>();
+
+        void add(Student student) {
+            Long id = student.getId();
+            students.put(id, student);
+            if (student.getMatricula() != null) {
+                byMatricula.put(student.getMatricula(), id);
+            }
+            if (student.getEmail() != null) {
+                byEmail.put(student.getEmail(), id);
+                emails.add(student.getEmail().toLowerCase(Locale.ROOT), id);
+            }
+            for (String word : nameTokens(student)) {
+                names.computeIfAbsent(word, w -> new HashSet<>()).add(id);
+            }
+        }
+
+        void remove(Long id) {
+            Student student = students.remove(id);
+            if (student == null) {
+                return;
+            }
+            if (student.getMatricula() != null) {
+                byMatricula.remove(student.getMatricula(), id);
+            }
+            if (student.getEmail() != null) {
+                byEmail.remove(student.getEmail(), id);
+                emails.remove(student.getEmail().toLowerCase(Locale.ROOT), id);
+            }
+            for (String word : nameTokens(student)) {
+                Set<Long> ids = names.get(word);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        names.remove(word);
+                    }
+                }
+            }
+        }
+
+        private static Set<String> nameTokens(Student student) {
+            Set<String> words = new HashSet<>();
+            for (String word : tokens(student.getNombre())) {
+                words.add(word);
+            }
+            for (String word : tokens(student.getApellidos())) {
+                words.add(word);
+            }
+            return words;
+        }
+    }
+
+    /**
+     * Trie de emails en minúsculas. Cada email se inserta completo y desde el inicio de cada segmento,
+     * así "utez" encuentra "ana.lopez@utez.edu.mx"
+     */
+    private static final class EmailTrie {
+
+        private final Node root = new Node();
+
+        void add(String email, Long id) {
+            for (int start : starts(email)) {
+                Node node = root;
+                for (int i = start; i < email.length(); i++) {
+                    node = node.children.computeIfAbsent(email.charAt(i), c -> new Node());
+                }
+                node.ids.add(id);
+            }
+        }
+
+        void remove(String email, Long id) {
+            for (int start : starts(email)) {
+                remove(root, email, start, id);
+            }
+        }
+
+        // Devuelve true si el nodo quedó vacío y el padre puede soltarlo
+        private static boolean remove(Node node, String email, int i, Long id) {
+            if (i == email.length()) {
+                node.ids.remove(id);
+            } else {
+                Node child = node.children.get(email.charAt(i));
+                if (child != null && remove(child, email, i + 1, id)) {
+                    node.children.remove(email.charAt(i));
+                }
+            }
+            return node.ids.isEmpty() && node.children.isEmpty();
+        }
+
+        Set<Long> find(String prefix) {
+            Set<Long> result = new HashSet<>();
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.children.get(prefix.charAt(i));
+            }
+            if (node == null) {
+                return result;
+            }
+            Deque<Node> stack = new ArrayDeque<>();
+            stack.push(node);
+            while (!stack.isEmpty()) {
+                Node current = stack.pop();
+                result.addAll(current.ids);
+                for (Node child : current.children.values()) {
+                    stack.push(child);
+                }
+            }
+            return result;
+        }
+
+        private static List<Integer> starts(String email) {
+            List<Integer> starts = new ArrayList<>();
+            starts.add(0);
+            for (int i = 0; i < email.length() - 1; i++) {
+                if (EMAIL_SEPARATORS.indexOf(email.charAt(i)) >= 0) {
+                    starts.add(i + 1);
+                }
+            }
+            return starts;
+        }
+
+        private static final class Node {
+            private final Map<Character, Node> children = new HashMap<>();
+            private final Set<Long> ids = new HashSet<>(1);
+        }
+    }
+}
@@ -1,25 +1,66 @@
 package com.rocket.rocket.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rocket.rocket.mapper.LoanMapper;
 import com.rocket.rocket.mapper.StudentMapper;
 import com.rocket.rocket.model.Student;
 import com.rocket.rocket.utils.CustomResponse;
+import com.rocket.rocket.utils.ExportStreams;
+import com.rocket.rocket.utils.FieldSet;
+import com.rocket.rocket.utils.IdAllocator;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @Service
 public class StudentService {
 
+    // Campos que acepta fields= en el listado de estudiantes
+    private static final FieldSet<Student> FIELDS = new FieldSet<Student>("id", "ID", Student::getId)
+            .field("nombre", "NOMBRE", Student::getNombre)
+            .field("apellidos", "APELLIDOS", Student::getApellidos)
+            .field("telefono", "TELEFONO", Student::getTelefono)
+            .field("email", "EMAIL", Student::getEmail)
+            .field("matricula", "MATRICULA", Student::getMatricula);
+
+    // Columnas de la exportación de estudiantes (CSV y NDJSON)
+    private static final List<ExportStreams.Column<Student>> EXPORT_COLUMNS = ExportStreams.columns(
+            ExportStreams.column("id", Student::getId),
+            ExportStreams.column("matricula", Student::getMatricula),
+            ExportStreams.column("nombre", Student::getNombre),
+            ExportStreams.column("apellidos", Student::getApellidos),
+            ExportStreams.column("email", Student::getEmail),
+            ExportStreams.column("telefono", Student::getTelefono));
+
     private final StudentMapper studentMapper;
     private  final LoanMapper loanMapper;
+    private final IdAllocator studentIdAllocator;
+    private final EntityCache entityCache;
+    private final CollectionVersions collectionVersions;
+    private final StudentDirectory studentDirectory;
+    private final ObjectMapper objectMapper;
 
-    public StudentService(StudentMapper studentMapper, LoanMapper loanMapper) {
+    public StudentService(StudentMapper studentMapper, LoanMapper loanMapper,
+                          @Qualifier("studentIdAllocator") IdAllocator studentIdAllocator,
+                          EntityCache entityCache, CollectionVersions collectionVersions,
+                          StudentDirectory studentDirectory, ObjectMapper objectMapper) {
         this.studentMapper = studentMapper;
         this.loanMapper = loanMapper;
+        this.studentIdAllocator = studentIdAllocator;
+        this.entityCache = entityCache;
+        this.collectionVersions = collectionVersions;
+        this.studentDirectory = studentDirectory;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -34,7 +75,7 @@ public class StudentService {
                 return new CustomResponse<>(null, 400, "La matrícula no puede ser nula o vacía", true);
             }
 
-            Student student = studentMapper.findByMatricula(matricula);
+            Student student = findByMatriculaExact(matricula);
             if (student != null) {
                 return new CustomResponse<>(student, 200, "Estudiante con matrícula " + matricula + " encontrado", false);
             } else {
@@ -46,18 +87,22 @@ public class StudentService {
     }
 
     /**
-     * Busca estudiantes cuyos emails contengan una coincidencia parcial.
+     * Busca estudiantes cuyo email, o alguno de sus segmentos, empieza con el texto (por ejemplo "juan" o "utez").
+     * Con el directorio en memoria aún sin construir se busca la coincidencia parcial en USUARIOS.
      * @param email Fragmento del email a buscar (no puede ser nulo o vacío)
      * @return CustomResponse con lista de estudiantes encontrados (200),
      *         vacía si no hay coincidencias, datos inválidos (400) o error (500)
      */
+    @Transactional(readOnly = true)
     public CustomResponse<List<Student>> findByEmailLike(String email) {
         try {
             if (email == null || email.trim().isEmpty()) {
                 return new CustomResponse<>(null, 400, "El email no puede ser nulo o vacío", true);
             }
 
-            List<Student> students = studentMapper.findByEmailLike(email);
+            List<Student> students = studentDirectory.isReady()
+                    ? studentDirectory.findByEmailPrefix(email)
+                    : studentMapper.findByEmailLike(email);
             return new CustomResponse<>(students, 200, "Estudiantes encontrados con coincidencia en email", false);
 
         } catch (Exception e) {
@@ -69,6 +114,7 @@ public class StudentService {
      * @return CustomResponse con la lista de estudiantes (200),
      *         lista vacía (200) o error (500)
      */
+    @Transactional(readOnly = true)
     public CustomResponse<List<Student>> findAll() {
         try {
             List<Student> students = studentMapper.findAll();
@@ -82,6 +128,46 @@ public class StudentService {
         }
     }
 
+    /**
+     * Obtiene todos los estudiantes leyendo de USUARIOS solo las columnas pedidas
+     * @param fields Campos separados por coma (el id siempre se incluye), por ejemplo "nombre,matricula"
+     * @return CustomResponse con los estudiantes con solo esos campos (200),
+     *         campo desconocido (400) o error (500)
+     */
+    @Transactional(readOnly = true)
+    public CustomResponse<List<Map<String, Object>>> findAll(String fields) {
+        try {
+            FieldSet<Student>.Selection selection;
+            try {
+                selection = FIELDS.parse(fields);
+            } catch (IllegalArgumentException e) {
+                return new CustomResponse<>(null, 400, e.getMessage(), true);
+            }
+            List<Student> students = studentMapper.findAllFields(selection.getColumns());
+            if (students != null && !students.isEmpty()) {
+                return new CustomResponse<>(selection.project(students), 200, "Estudiantes obtenidos exitosamente", false);
+            } else {
+                return new CustomResponse<>(new ArrayList<>(), 200, "No hay estudiantes disponibles", false);
+            }
+        } catch (Exception e) {
+            return new CustomResponse<>(null, 500, "Error al obtener la lista de estudiantes: " + e.getMessage(), true);
+        }
+    }
+
+    /**
+     * Exporta todos los estudiantes fila por fila con un cursor de MyBatis, sin cargar la lista en memoria
+     * @param out Flujo de salida de la respuesta HTTP
+     * @param format CSV o NDJSON
+     * @return Número de estudiantes exportados
+     * @throws IOException Si el cliente cierra la conexión
+     */
+    @Transactional(readOnly = true)
+    public long exportStudents(OutputStream out, ExportStreams.Format format) throws IOException {
+        try (Cursor<Student> cursor = studentMapper.streamAll()) {
+            return ExportStreams.write(objectMapper, out, format, EXPORT_COLUMNS, cursor);
+        }
+    }
+
     /**
      * Registra un nuevo estudiante en el sistema
      * @param student Objeto Student con los datos del nuevo estudiante
@@ -110,7 +196,7 @@ public class StudentService {
                 return new CustomResponse<>(null, 400, "Los apellidos no pueden ser nulos o vacíos", true);
             }
 
-            // Verificación si el estudiante con el mismo email ya existe
+            // Verificación si el estudiante con el mismo email ya existe (en USUARIOS: el directorio puede ir atrasado)
             Student existingStudent = studentMapper.findByEmail(student.getEmail());
             if (existingStudent != null) {
                 return new CustomResponse<>(null, 409, "El correo electrónico " + student.getEmail() + " ya está registrado", true);
@@ -122,10 +208,13 @@ public class StudentService {
             }
 
             // Guardar el nuevo estudiante
+            student.setId(studentIdAllocator.nextId());
             studentMapper.insertStudent(student);
+            studentDirectory.put(student);
             return new CustomResponse<>(student, 201, "Estudiante creado exitosamente con ID: " + student.getId(), false);
         } catch (DuplicateKeyException e) {
-            return new CustomResponse<>(null, 409, "El correo electrónico ya está registrado", true);
+            // Otra petición registró el mismo email o matrícula entre la validación y el INSERT
+            return new CustomResponse<>(null, 409, duplicateMessage(student), true);
         } catch (DataIntegrityViolationException e) {
             return new CustomResponse<>(null, 400, "Error de integridad de datos: " + e.getMessage(), true);
         } catch (Exception e) {
@@ -150,12 +239,12 @@ public class StudentService {
             }
 
             // Obtener estudiante existente
-            Student existingStudent = studentMapper.findById(student.getId());
+            Student existingStudent = entityCache.findStudent(student.getId());
             if (existingStudent == null) {
                 return new CustomResponse<>(null, 404, "Estudiante con ID " + student.getId() + " no encontrado", true);
             }
 
-            // Validación de email duplicado (solo si cambió)
+            // Validación de email duplicado (solo si cambió), en USUARIOS: el directorio puede ir atrasado
             if (!Objects.equals(existingStudent.getEmail(), student.getEmail())) {
                 Student emailExists = studentMapper.findByEmail(student.getEmail());
                 if (emailExists != null && !emailExists.getId().equals(student.getId())) {
@@ -173,10 +262,14 @@ public class StudentService {
 
             // Actualizar estudiante
             studentMapper.updateStudent(student);
+            entityCache.evictStudent(student.getId());
+            studentDirectory.put(student);
+            // Nombre y correo del estudiante aparecen en los préstamos
+            collectionVersions.touch(CollectionVersions.Collection.LOANS);
             return new CustomResponse<>(student, 200, "Estudiante actualizado exitosamente", false);
 
         } catch (DuplicateKeyException e) {
-            return new CustomResponse<>(null, 409, "El correo electrónico o matrícula ya está registrado", true);
+            return new CustomResponse<>(null, 409, duplicateMessage(student), true);
         } catch (DataIntegrityViolationException e) {
             return new CustomResponse<>(null, 400, "Error de integridad de datos: " + e.getMessage(), true);
         } catch (Exception e) {
@@ -197,18 +290,20 @@ public class StudentService {
                 return new CustomResponse<>(null, 400, "El ID del estudiante no puede ser nulo", true);
             }
 
-            Student student = studentMapper.findById(id);
+            Student student = entityCache.findStudent(id);
             if (student == null) {
                 return new CustomResponse<>(null, 404, "Estudiante con ID " + id + " no encontrado", true);
             }
 
             // Validar si tiene préstamos activos
-            int activeLoans = loanMapper.countActiveLoansByStudentId(id);
-            if (activeLoans > 0) {
+            if (loanMapper.findAdmission(id, null).getActivos() > 0) {
                 return new CustomResponse<>(null, 400, "No se puede eliminar el estudiante porque tiene préstamos activos.", true);
             }
 
             studentMapper.deleteStudent(id);
+            entityCache.evictStudent(id);
+            studentDirectory.remove(id);
+            collectionVersions.touch(CollectionVersions.Collection.LOANS);
             return new CustomResponse<>("Estudiante eliminado exitosamente", 200, "Estudiante con ID " + id + " eliminado", false);
 
         } catch (DataIntegrityViolationException e) {
@@ -217,4 +312,28 @@ public class StudentService {
             return new CustomResponse<>(null, 500, "Error al eliminar el estudiante: " + e.getMessage(), true);
         }
     }
+
+    // Mismo mensaje que las validaciones previas; Oracle solo deshace la sentencia que falló, la transacción sigue usable
+    private String duplicateMessage(Student student) {
+        try {
+            Student byEmail = studentMapper.findByEmail(student.getEmail());
+            if (byEmail != null && !byEmail.getId().equals(student.getId())) {
+                return "El correo electrónico " + student.getEmail() + " ya está registrado";
+            }
+            Student byMatricula = studentMapper.findByMatricula(student.getMatricula());
+            if (byMatricula != null && !byMatricula.getId().equals(student.getId())) {
+                return "La matrícula " + student.getMatricula() + " ya está registrada";
+            }
+        } catch (Exception e) {
+            // Sin el detalle, el mensaje genérico
+        }
+        return "El correo electrónico o matrícula ya está registrado";
+    }
+
+    // Búsqueda exacta: en el directorio en memoria si ya está construido, si no en USUARIOS
+    private Student findByMatriculaExact(String matricula) {
+        return studentDirectory.isReady()
+                ? studentDirectory.findByMatricula(matricula)
+                : studentMapper.findByMatricula(matricula);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.rocket.rocket.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Ejecuta acciones cuando la transacción actual se confirma.
+ * Si no hay transacción activa, la acción se ejecuta de inmediato.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * @param action Acción a ejecutar después del commit (se descarta si hay rollback)
+     */
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.rocket.rocket.utils;
+
+import org.apache.ibatis.executor.BatchResult;
+
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Lectura de los resultados de una sesión MyBatis con ExecutorType.BATCH
+ */
+public final class BatchUpdates {
+
+    private BatchUpdates() {
+    }
+
+    /**
+     * Filas afectadas por sentencias condicionadas (UPDATE ... WHERE STOCK >= n, ACTIVO -> VENCIDO), donde 0 filas
+     * significa que la condición no se cumplió
+     * @param batchResults Resultado de flushStatements()
+     * @param expected Número de sentencias agregadas al batch
+     * @return Filas afectadas por cada sentencia, en el orden en que se agregaron
+     * @throws IllegalStateException Si el driver no informa las filas (SUCCESS_NO_INFO) o si el número de
+     * resultados no coincide con expected; la transacción se debe revertir
+     */
+    public static int[] counts(List<BatchResult> batchResults, int expected) {
+        return read(batchResults, expected, false);
+    }
+
+    /**
+     * Filas afectadas por sentencias sin condición (INSERT), donde SUCCESS_NO_INFO cuenta como ejecutada
+     * @param batchResults Resultado de flushStatements()
+     * @param expected Número de sentencias agregadas al batch
+     * @return Filas afectadas por cada sentencia, en el orden en que se agregaron
+     * @throws IllegalStateException Si el número de resultados no coincide con expected
+     */
+    public static int[] insertCounts(List<BatchResult> batchResults, int expected) {
+        return read(batchResults, expected, true);
+    }
+
+    private static int[] read(List<BatchResult> batchResults, int expected, boolean noInfoExecuted) {
+        int total = 0;
+        for (BatchResult batchResult : batchResults) {
+            total += batchResult.getUpdateCounts().length;
+        }
+        if (total != expected) {
+            throw new IllegalStateException("El batch devolvió " + total + " resultados para " + expected + " sentencias");
+        }
+        int[] counts = new int[expected];
+        int k = 0;
+        for (BatchResult batchResult : batchResults) {
+            for (int count : batchResult.getUpdateCounts()) {
+                if (count == Statement.SUCCESS_NO_INFO) {
+                    if (!noInfoExecuted) {
+                        // Un UPDATE condicionado con 0 filas se aceptaría como exitoso (sobreventa de stock)
+                        throw new IllegalStateException("El driver no informó las filas afectadas de "
+                                + batchResult.getMappedStatement().getId());
+                    }
+                    count = 1;
+                }
+                counts[k++] = count == Statement.EXECUTE_FAILED ? 0 : count;
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,63 @@
+package com.rocket.rocket.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Reserva rangos de identificadores con un solo viaje a la base de datos y los
+ * entrega en memoria sin bloqueos.
+ * <p>
+ * Cada valor de la secuencia marca el inicio de un bloque {@code [valor, valor + blockSize)},
+ * por lo que la secuencia debe estar creada con {@code INCREMENT BY} igual a {@code blockSize}.
+ * Solo la recarga de un bloque agotado se serializa; la entrega normal es un
+ * {@code getAndIncrement} sobre el bloque vigente.
+ */
+public class BlockIdAllocator implements IdAllocator {
+
+    private final LongSupplier sequence;
+    private final int blockSize;
+    private volatile Block current;
+
+    /**
+     * @param sequence  Fuente que devuelve el inicio del siguiente bloque (NEXTVAL)
+     * @param blockSize Cantidad de IDs por bloque (debe coincidir con el INCREMENT BY de la secuencia)
+     */
+    public BlockIdAllocator(LongSupplier sequence, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser positivo");
+        }
+        this.sequence = sequence;
+        this.blockSize = blockSize;
+        this.current = new Block(0, 0);
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            Block block = current;
+            long id = block.next.getAndIncrement();
+            if (id < block.end) {
+                return id;
+            }
+            refill(block);
+        }
+    }
+
+    private synchronized void refill(Block exhausted) {
+        // Otro hilo pudo haber recargado mientras esperábamos el candado
+        if (current == exhausted) {
+            long start = sequence.getAsLong();
+            current = new Block(start, start + blockSize);
+        }
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
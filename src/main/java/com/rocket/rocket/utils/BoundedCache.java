@@ -0,0 +1,126 @@
+package com.rocket.rocket.utils;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché en memoria con tamaño máximo (expulsa el menos usado recientemente)
+ * y tiempo de vida por entrada. Lleva contadores de aciertos, fallos y expulsiones
+ * que se publican con {@link #bindTo}.
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries Número máximo de entradas
+     * @param ttlMillis Tiempo de vida de cada entrada en milisegundos (0 = sin vencimiento)
+     */
+    public BoundedCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > BoundedCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param key Clave buscada
+     * @return Valor vigente o null si no está o ya venció
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (ttlNanos > 0 && System.nanoTime() - entry.createdAt > ttlNanos) {
+            entries.remove(key);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    public synchronized V remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        return entry != null ? entry.value : null;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Publica rocket.cache.hits, rocket.cache.misses, rocket.cache.evictions y rocket.cache.size
+     * @param registry Registro de Micrometer
+     * @param name Valor de la etiqueta cache
+     */
+    public void bindTo(MeterRegistry registry, String name) {
+        FunctionCounter.builder("rocket.cache.hits", this, BoundedCache::hits)
+                .description("Lecturas resueltas por la caché")
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("rocket.cache.misses", this, BoundedCache::misses)
+                .description("Lecturas que no estaban en la caché o ya habían vencido")
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("rocket.cache.evictions", this, BoundedCache::evictions)
+                .description("Entradas expulsadas por tamaño o vencimiento")
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("rocket.cache.size", this, BoundedCache::size)
+                .description("Entradas en la caché")
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long createdAt;
+
+        private Entry(V value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
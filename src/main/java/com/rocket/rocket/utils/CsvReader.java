@@ -0,0 +1,104 @@
+package com.rocket.rocket.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lee un CSV (RFC 4180) registro por registro, sin cargar el archivo completo.
+ * Admite campos entre comillas con comas, comillas dobles ("") y saltos de línea,
+ * y finales de línea \n o \r\n. Es el formato que escribe {@link ExportStreams}.
+ */
+public final class CsvReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long line = 1;
+    private long recordLine;
+
+    /**
+     * @param reader Fuente del CSV (se lee con un búfer propio)
+     */
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return Campos del siguiente registro, o null al llegar al final del archivo
+     * @throws IOException Si falla la lectura o un campo entre comillas no se cierra
+     */
+    public List<String> next() throws IOException {
+        int c = read();
+        if (c < 0) {
+            return null;
+        }
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("Campo entre comillas sin cerrar a partir de la línea " + recordLine);
+                }
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c < 0) {
+                if (c == '\n') {
+                    line++;
+                }
+                int end = field.length();
+                if (end > 0 && field.charAt(end - 1) == '\r') {
+                    field.setLength(end - 1);
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * @return Línea del archivo donde empieza el último registro leído (la primera es 1)
+     */
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+}
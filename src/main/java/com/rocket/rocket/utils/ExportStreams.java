@@ -0,0 +1,183 @@
+package com.rocket.rocket.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Escribe exportaciones en CSV o NDJSON fila por fila, sin construir la lista en memoria.
+ * Cada fila se aplana con las columnas declaradas, así los dos formatos tienen los mismos campos.
+ */
+public final class ExportStreams {
+
+    private static final int FLUSH_EVERY = 500;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Formatos de exportación admitidos
+     */
+    public enum Format {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @param value Valor del parámetro format (sin importar mayúsculas)
+         * @return Formato correspondiente
+         * @throws IllegalArgumentException Si el formato no existe
+         */
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Formato desconocido '" + value + "'. Formatos disponibles: csv, ndjson");
+            }
+        }
+    }
+
+    /**
+     * Columna de una exportación
+     * @param <T> Entidad exportada
+     */
+    public static final class Column<T> {
+
+        private final String name;
+        private final Function<T, Object> getter;
+
+        private Column(String name, Function<T, Object> getter) {
+            this.name = name;
+            this.getter = getter;
+        }
+    }
+
+    private ExportStreams() {
+    }
+
+    /**
+     * @param name Encabezado en CSV y nombre del campo en NDJSON
+     * @param getter Valor de la columna para una fila (null se escribe vacío en CSV)
+     * @return Columna
+     */
+    public static <T> Column<T> column(String name, Function<T, Object> getter) {
+        return new Column<>(name, getter);
+    }
+
+    /**
+     * @param columns Columnas en el orden de salida
+     * @return Lista inmodificable de columnas
+     */
+    @SafeVarargs
+    public static <T> List<Column<T>> columns(Column<T>... columns) {
+        return Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    /**
+     * Escribe las filas en el formato pedido, vaciando el búfer cada 500 filas
+     * @param objectMapper ObjectMapper de la aplicación (valores NDJSON con el mismo formato que la API)
+     * @param out Flujo de salida de la respuesta HTTP
+     * @param format Formato de salida
+     * @param columns Columnas a escribir
+     * @param rows Filas a escribir (por ejemplo un Cursor de MyBatis)
+     * @return Número de filas escritas
+     * @throws IOException Si el cliente cierra la conexión
+     */
+    public static <T> long write(ObjectMapper objectMapper, OutputStream out, Format format,
+                                 List<Column<T>> columns, Iterable<T> rows) throws IOException {
+        return format == Format.CSV ? writeCsv(out, columns, rows) : writeNdjson(objectMapper, out, columns, rows);
+    }
+
+    private static <T> long writeCsv(OutputStream out, List<Column<T>> columns, Iterable<T> rows) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(columns.get(i).name);
+        }
+        writer.write("\r\n");
+        for (T row : rows) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCsvValue(writer, columns.get(i).getter.apply(row));
+            }
+            writer.write("\r\n");
+            if (++count % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    // RFC 4180; los textos que una hoja de cálculo interpretaría como fórmula llevan un apóstrofo delante
+    private static void writeCsvValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (value instanceof CharSequence && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static <T> long writeNdjson(ObjectMapper objectMapper, OutputStream out, List<Column<T>> columns,
+                                        Iterable<T> rows) throws IOException {
+        long count = 0;
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        try {
+            for (T row : rows) {
+                generator.writeStartObject();
+                for (Column<T> column : columns) {
+                    generator.writeFieldName(column.name);
+                    generator.writeObject(column.getter.apply(row));
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                if (++count % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+        } finally {
+            generator.close();
+        }
+        return count;
+    }
+}
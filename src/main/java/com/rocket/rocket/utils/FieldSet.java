@@ -0,0 +1,142 @@
+package com.rocket.rocket.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Campos que un endpoint de listado permite elegir con el parámetro {@code fields}.
+ * <p>
+ * Cada campo declara la expresión SQL que lo lee y el getter que lo toma de la entidad.
+ * Como solo se aceptan los campos declarados aquí, las expresiones se pueden insertar
+ * en el SQL del mapper con ${} sin riesgo de inyección.
+ * @param <T> Entidad del listado
+ */
+public final class FieldSet<T> {
+
+    private final Map<String, String> columns = new LinkedHashMap<>();
+    private final Map<String, Function<T, Object>> getters = new LinkedHashMap<>();
+    private final String key;
+
+    /**
+     * @param key Campo que siempre se incluye (el ID)
+     * @param column Expresión SQL del campo clave
+     * @param getter Getter del campo clave
+     */
+    public FieldSet(String key, String column, Function<T, Object> getter) {
+        this.key = key;
+        field(key, column, getter);
+    }
+
+    /**
+     * Declara un campo seleccionable
+     * @param name Nombre del campo en el JSON
+     * @param column Expresión SQL que lo lee (puede ser una lista de columnas)
+     * @param getter Getter que lo toma de la entidad
+     * @return Este mismo FieldSet
+     */
+    public FieldSet<T> field(String name, String column, Function<T, Object> getter) {
+        columns.put(name, column);
+        getters.put(name, getter);
+        return this;
+    }
+
+    /**
+     * Interpreta el parámetro fields
+     * @param fields Nombres separados por coma, por ejemplo "titulo,autor" o "titulo, autor"
+     * @return Selección con el campo clave más los campos pedidos, en el orden declarado
+     * @throws IllegalArgumentException Si algún campo no existe; los nombres distinguen mayúsculas y solo se
+     * ignoran espacios alrededor de las comas (no tabuladores, saltos de línea ni otros espacios Unicode)
+     */
+    public Selection parse(String fields) {
+        List<String> requested = new ArrayList<>();
+        for (String raw : fields.split(",")) {
+            String name = stripSpaces(raw);
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!columns.containsKey(name)) {
+                throw new IllegalArgumentException("Campo desconocido '" + name
+                        + "'. Campos disponibles: " + String.join(", ", columns.keySet()));
+            }
+            requested.add(name);
+        }
+        List<String> selected = new ArrayList<>();
+        for (String name : columns.keySet()) {
+            if (name.equals(key) || requested.contains(name)) {
+                selected.add(name);
+            }
+        }
+        return new Selection(selected);
+    }
+
+    private static String stripSpaces(String raw) {
+        int start = 0;
+        int end = raw.length();
+        while (start < end && raw.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && raw.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return raw.substring(start, end);
+    }
+
+    /**
+     * Campos elegidos de un FieldSet
+     */
+    public final class Selection {
+
+        private final List<String> names;
+
+        private Selection(List<String> names) {
+            this.names = Collections.unmodifiableList(names);
+        }
+
+        /**
+         * @return Expresiones SQL de los campos elegidos, para la lista del SELECT
+         */
+        public List<String> getColumns() {
+            List<String> sql = new ArrayList<>(names.size());
+            for (String name : names) {
+                sql.add(columns.get(name));
+            }
+            return sql;
+        }
+
+        /**
+         * @param name Nombre del campo
+         * @return true si el campo fue elegido
+         */
+        public boolean includes(String name) {
+            return names.contains(name);
+        }
+
+        /**
+         * @param entity Entidad leída solo con las columnas elegidas
+         * @return Mapa con los campos elegidos, en el orden declarado
+         */
+        public Map<String, Object> project(T entity) {
+            Map<String, Object> projected = new LinkedHashMap<>();
+            for (String name : names) {
+                projected.put(name, getters.get(name).apply(entity));
+            }
+            return projected;
+        }
+
+        /**
+         * @param entities Entidades leídas solo con las columnas elegidas
+         * @return Lista de mapas con los campos elegidos
+         */
+        public List<Map<String, Object>> project(List<T> entities) {
+            List<Map<String, Object>> projected = new ArrayList<>(entities.size());
+            for (T entity : entities) {
+                projected.add(project(entity));
+            }
+            return projected;
+        }
+    }
+}
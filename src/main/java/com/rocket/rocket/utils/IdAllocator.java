@@ -0,0 +1,15 @@
+package com.rocket.rocket.utils;
+
+/**
+ * Asigna identificadores para las inserciones de una tabla.
+ * Las implementaciones deben ser seguras para uso concurrente y no
+ * repetir nunca un identificador ya entregado.
+ */
+public interface IdAllocator {
+
+    /**
+     * Obtiene el siguiente identificador libre
+     * @return ID único para la siguiente inserción
+     */
+    long nextId();
+}
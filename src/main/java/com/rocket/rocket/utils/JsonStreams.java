@@ -0,0 +1,54 @@
+package com.rocket.rocket.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Escribe respuestas JSON fila por fila, con la misma forma que {@link CustomResponse},
+ * sin construir la lista completa en memoria.
+ */
+public final class JsonStreams {
+
+    private static final int FLUSH_EVERY = 500;
+
+    private JsonStreams() {
+    }
+
+    /**
+     * Escribe {"data":[...],"code":...,"message":...,"error":false} consumiendo las filas una a una
+     * @param objectMapper ObjectMapper de la aplicación (mismo formato que las respuestas normales)
+     * @param out Flujo de salida de la respuesta HTTP
+     * @param rows Filas a escribir (por ejemplo un Cursor de MyBatis)
+     * @param code Código a reportar en el sobre
+     * @param message Mensaje a reportar en el sobre
+     * @return Número de filas escritas
+     * @throws IOException Si el cliente cierra la conexión
+     */
+    public static long writeResponse(ObjectMapper objectMapper, OutputStream out, Iterable<?> rows,
+                                     int code, String message) throws IOException {
+        long count = 0;
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("data");
+            for (Object row : rows) {
+                generator.writeObject(row);
+                if (++count % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("code", code);
+            generator.writeStringField("message", message);
+            generator.writeBooleanField("error", false);
+            generator.writeEndObject();
+        } finally {
+            generator.close();
+        }
+        return count;
+    }
+}
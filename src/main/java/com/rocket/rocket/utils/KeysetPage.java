@@ -0,0 +1,66 @@
+package com.rocket.rocket.utils;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de resultados obtenida por keyset (sin OFFSET).
+ * Para pedir la siguiente página se envía {@code next} como parámetro {@code after}.
+ */
+public class KeysetPage<T> {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private List<T> items;
+    private String next;     // Cursor de la siguiente página, null si es la última
+    private int limit;
+
+    public KeysetPage() {
+    }
+
+    public KeysetPage(List<T> items, String next, int limit) {
+        this.items = items;
+        this.next = next;
+        this.limit = limit;
+    }
+
+    /**
+     * Construye la página a partir de una consulta que pidió limit + 1 filas
+     * @param rows Filas obtenidas (como máximo limit + 1)
+     * @param limit Tamaño de página solicitado
+     * @param cursorOf Función que calcula el cursor de una fila
+     * @return Página con a lo más limit elementos y el cursor siguiente si hay más filas
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() > limit) {
+            List<T> items = rows.subList(0, limit);
+            return new KeysetPage<>(items, cursorOf.apply(items.get(limit - 1)), limit);
+        }
+        return new KeysetPage<>(rows, null, limit);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
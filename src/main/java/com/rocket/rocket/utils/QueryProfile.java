@@ -0,0 +1,222 @@
+package com.rocket.rocket.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sentencias MyBatis ejecutadas durante una petición, para encontrar viajes a la base de datos sobrantes.
+ * <p>
+ * El perfil de la petición en curso se asocia al hilo con {@link #bind}; {@link #wrap} lo lleva a las tareas
+ * que la petición pasa a los pools. El resumen marca:
+ * <ul>
+ *     <li>Repetidas: la misma sentencia con los mismos parámetros más de una vez.</li>
+ *     <li>N+1: la misma consulta de una sola fila ejecutada varias veces con parámetros distintos
+ *     (normalmente un ciclo que debería ser una sola consulta con IN o JOIN).</li>
+ * </ul>
+ */
+public final class QueryProfile {
+
+    private static final ThreadLocal<QueryProfile> CURRENT = new ThreadLocal<>();
+    private static final int MAX_PARAMETERS_LENGTH = 300;
+
+    private final String request;
+    private final int maxEntries;
+    private final int nPlusOneThreshold;
+    private final List<Entry> entries = new ArrayList<>();
+    private int total;
+    private long totalNanos;
+
+    /**
+     * @param request Método y ruta de la petición
+     * @param maxEntries Sentencias que se guardan con detalle (las demás solo se cuentan)
+     * @param nPlusOneThreshold Ejecuciones con parámetros distintos a partir de las cuales se marca N+1
+     */
+    public QueryProfile(String request, int maxEntries, int nPlusOneThreshold) {
+        this.request = request;
+        this.maxEntries = maxEntries;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    /**
+     * @return Perfil asociado al hilo actual, o null si la petición no se está perfilando
+     */
+    public static QueryProfile current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param profile Perfil a asociar al hilo actual (null para quitarlo)
+     */
+    public static void bind(QueryProfile profile) {
+        if (profile == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(profile);
+        }
+    }
+
+    /**
+     * Lleva el perfil del hilo que envía la tarea al hilo que la ejecuta (TaskDecorator de los pools)
+     * @param task Tarea enviada a un pool
+     * @return La misma tarea si no hay perfil activo
+     */
+    public static Runnable wrap(Runnable task) {
+        QueryProfile profile = CURRENT.get();
+        if (profile == null) {
+            return task;
+        }
+        return () -> {
+            QueryProfile previous = CURRENT.get();
+            CURRENT.set(profile);
+            try {
+                task.run();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    /**
+     * @param statement ID del mapped statement
+     * @param select true si es un SELECT
+     * @param parameters Valores enlazados, en orden
+     * @param nanos Duración
+     * @param rows Filas devueltas o afectadas (-1 si no se conocen)
+     */
+    public synchronized void record(String statement, boolean select, String parameters, long nanos, long rows) {
+        total++;
+        totalNanos += nanos;
+        if (entries.size() < maxEntries) {
+            if (parameters.length() > MAX_PARAMETERS_LENGTH) {
+                parameters = parameters.substring(0, MAX_PARAMETERS_LENGTH) + "...(" + parameters.length() + ")";
+            }
+            entries.add(new Entry(statement, select, parameters, nanos, rows));
+        }
+    }
+
+    /**
+     * @return Resumen de una línea para el encabezado X-Query-Profile (solo ASCII)
+     */
+    public synchronized String header() {
+        StringBuilder header = new StringBuilder()
+                .append("queries=").append(total)
+                .append("; time=").append(String.format(Locale.ROOT, "%.1fms", totalNanos / 1_000_000.0));
+        appendFlags(header, "; repeated=", repeated());
+        appendFlags(header, "; n+1=", nPlusOne());
+        if (total > entries.size()) {
+            header.append("; untracked=").append(total - entries.size());
+        }
+        return header.toString();
+    }
+
+    /**
+     * @return Resumen para el log, con la petición
+     */
+    public synchronized String summary() {
+        return request + " -> " + header();
+    }
+
+    /**
+     * @return true si hay sentencias repetidas o consultas N+1
+     */
+    public synchronized boolean hasFindings() {
+        return !repeated().isEmpty() || !nPlusOne().isEmpty();
+    }
+
+    /**
+     * @return Una línea por sentencia guardada: duración, filas, ID y parámetros
+     */
+    public synchronized List<String> details() {
+        List<String> lines = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            lines.add(String.format(Locale.ROOT, "%8.2fms %6s  %s [%s]", entry.nanos / 1_000_000.0,
+                    entry.rows >= 0 ? Long.toString(entry.rows) : "-", shortName(entry.statement), entry.parameters));
+        }
+        return lines;
+    }
+
+    // Sentencia -> veces que se repitió con los mismos parámetros (la más repetida)
+    private Map<String, Integer> repeated() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Entry entry : entries) {
+            counts.merge(entry.statement + '\u0000' + entry.parameters, 1, Integer::sum);
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            if (count.getValue() > 1) {
+                String statement = count.getKey().substring(0, count.getKey().indexOf('\u0000'));
+                result.merge(shortName(statement), count.getValue(), Math::max);
+            }
+        }
+        return result;
+    }
+
+    // Consulta -> ejecuciones, si todas devolvieron a lo más una fila con al menos nPlusOneThreshold parámetros distintos
+    private Map<String, Integer> nPlusOne() {
+        Map<String, Set<String>> distinct = new LinkedHashMap<>();
+        Map<String, Integer> executions = new HashMap<>();
+        Set<String> multiRow = new HashSet<>();
+        for (Entry entry : entries) {
+            if (!entry.select) {
+                continue;
+            }
+            distinct.computeIfAbsent(entry.statement, s -> new HashSet<>()).add(entry.parameters);
+            executions.merge(entry.statement, 1, Integer::sum);
+            if (entry.rows > 1) {
+                multiRow.add(entry.statement);
+            }
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<String>> statement : distinct.entrySet()) {
+            if (statement.getValue().size() >= nPlusOneThreshold && !multiRow.contains(statement.getKey())) {
+                result.put(shortName(statement.getKey()), executions.get(statement.getKey()));
+            }
+        }
+        return result;
+    }
+
+    private static void appendFlags(StringBuilder header, String label, Map<String, Integer> flags) {
+        if (flags.isEmpty()) {
+            return;
+        }
+        header.append(label);
+        boolean first = true;
+        for (Map.Entry<String, Integer> flag : flags.entrySet()) {
+            if (!first) {
+                header.append(',');
+            }
+            header.append(flag.getKey()).append('*').append(flag.getValue());
+            first = false;
+        }
+    }
+
+    // com.rocket.rocket.mapper.LoanMapper.findById -> LoanMapper.findById
+    private static String shortName(String statement) {
+        int method = statement.lastIndexOf('.');
+        int type = method > 0 ? statement.lastIndexOf('.', method - 1) : -1;
+        return statement.substring(type + 1);
+    }
+
+    private static final class Entry {
+
+        private final String statement;
+        private final boolean select;
+        private final String parameters;
+        private final long nanos;
+        private final long rows;
+
+        Entry(String statement, boolean select, String parameters, long nanos, long rows) {
+            this.statement = statement;
+            this.select = select;
+            this.parameters = parameters;
+            this.nanos = nanos;
+            this.rows = rows;
+        }
+    }
+}
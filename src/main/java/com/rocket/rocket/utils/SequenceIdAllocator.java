@@ -0,0 +1,24 @@
+package com.rocket.rocket.utils;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Asigna un identificador por cada llamada a la secuencia de la base de datos.
+ * Cada ID cuesta un viaje a la base de datos, pero no hay estado en memoria.
+ */
+public class SequenceIdAllocator implements IdAllocator {
+
+    private final LongSupplier sequence;
+
+    /**
+     * @param sequence Fuente que devuelve el siguiente valor de la secuencia (NEXTVAL)
+     */
+    public SequenceIdAllocator(LongSupplier sequence) {
+        this.sequence = sequence;
+    }
+
+    @Override
+    public long nextId() {
+        return sequence.getAsLong();
+    }
+}
@@ -0,0 +1,117 @@
+package com.rocket.rocket.utils;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket por cliente sin candados.
+ * <p>
+ * Cada cubeta es un solo AtomicLong con el instante en que quedaría vacía (GCRA): una petición
+ * se admite si ese instante no supera ahora + ráfaga, y se descuenta con un compareAndSet.
+ * Una cubeta llena equivale a un cliente nuevo, así que al pasar de maxClients se descartan primero
+ * las cubetas llenas sin perder información; solo si no alcanza se descartan otras.
+ */
+public final class TokenBucketLimiter {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final int maxClients;
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param perSecond Peticiones por segundo que se reponen a cada cliente
+     * @param burst Peticiones seguidas que admite una cubeta llena
+     * @param maxClients Número máximo de cubetas en memoria
+     */
+    public TokenBucketLimiter(double perSecond, int burst, int maxClients) {
+        if (perSecond <= 0 || burst < 1 || maxClients < 1) {
+            throw new IllegalArgumentException("perSecond, burst y maxClients deben ser positivos");
+        }
+        this.intervalNanos = Math.max(1, Math.round(1_000_000_000d / perSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        this.maxClients = maxClients;
+    }
+
+    /**
+     * @param client Identificador del cliente
+     * @return 0 si se admite la petición, o los nanosegundos que faltan para que se admita
+     */
+    public long tryAcquire(String client) {
+        return tryAcquire(client, System.nanoTime());
+    }
+
+    /**
+     * @param client Identificador del cliente
+     * @param now Instante actual según System.nanoTime()
+     * @return 0 si se admite la petición, o los nanosegundos que faltan para que se admita
+     */
+    public long tryAcquire(String client, long now) {
+        AtomicLong bucket = buckets.get(client);
+        if (bucket == null) {
+            if (buckets.size() >= maxClients) {
+                evict(now);
+            }
+            bucket = buckets.computeIfAbsent(client, key -> new AtomicLong(EMPTY));
+        }
+        while (true) {
+            long emptyAt = bucket.get();
+            long base = emptyAt == EMPTY || emptyAt - now < 0 ? now : emptyAt;
+            long wait = base - toleranceNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(emptyAt, base + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return Cubetas en memoria
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * @return Cubetas descartadas por superar maxClients
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    // Un solo hilo limpia a la vez; los demás siguen sin esperar
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Iterator<AtomicLong> it = buckets.values().iterator();
+            while (it.hasNext()) {
+                long emptyAt = it.next().get();
+                if (emptyAt == EMPTY || emptyAt - now <= 0) {
+                    it.remove();
+                    evictions.increment();
+                }
+            }
+            // Si todas están en uso se baja al 90% para no recorrer el mapa en cada cliente nuevo
+            int target = maxClients - maxClients / 10;
+            it = buckets.values().iterator();
+            while (buckets.size() > target && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
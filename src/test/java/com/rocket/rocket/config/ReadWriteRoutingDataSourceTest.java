@@ -0,0 +1,72 @@
+package com.rocket.rocket.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Dos bases H2 hacen de primario y réplica; cada una responde con su nombre.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+	private JdbcTemplate jdbcTemplate;
+	private DataSourceTransactionManager transactionManager;
+
+	@BeforeEach
+	void setUp() {
+		DataSource primary = database("primary");
+		DataSource replica = database("replica");
+		DataSource routing = ReadWriteRoutingDataSource.create(primary, replica);
+		jdbcTemplate = new JdbcTemplate(routing);
+		transactionManager = new DataSourceTransactionManager(routing);
+	}
+
+	@Test
+	void readOnlyTransactionsGoToReplica() {
+		TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+
+		assertEquals("replica", readOnly.execute(status -> origin()));
+	}
+
+	@Test
+	void writeTransactionsAndReadAfterWriteStayOnPrimary() {
+		TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+		String origin = readWrite.execute(status -> {
+			jdbcTemplate.update("UPDATE ORIGEN SET ESCRITURAS = ESCRITURAS + 1");
+			return origin();
+		});
+
+		assertEquals("primary", origin);
+		assertEquals(Integer.valueOf(1), readWrite.execute(status ->
+				jdbcTemplate.queryForObject("SELECT ESCRITURAS FROM ORIGEN", Integer.class)));
+	}
+
+	@Test
+	void statementsWithoutTransactionGoToPrimary() {
+		assertEquals("primary", origin());
+	}
+
+	private String origin() {
+		return jdbcTemplate.queryForObject("SELECT NOMBRE FROM ORIGEN", String.class);
+	}
+
+	private static DataSource database(String name) {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=Oracle;DB_CLOSE_DELAY=-1");
+		dataSource.setUser("sa");
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		jdbc.execute("DROP TABLE IF EXISTS ORIGEN");
+		jdbc.execute("CREATE TABLE ORIGEN (NOMBRE VARCHAR2(20), ESCRITURAS NUMBER(10))");
+		jdbc.update("INSERT INTO ORIGEN VALUES (?, 0)", name);
+		return dataSource;
+	}
+}
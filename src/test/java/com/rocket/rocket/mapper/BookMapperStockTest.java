@@ -0,0 +1,153 @@
+package com.rocket.rocket.mapper;
+
+import com.rocket.rocket.model.Book;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ejecuta BookMapper.xml contra H2 en modo Oracle con muchos hilos prestando el mismo libro.
+ */
+class BookMapperStockTest {
+
+	private static final int THREADS = 16;
+	private static final int ATTEMPTS_PER_THREAD = 50;
+	private static final int INITIAL_STOCK = 200;
+
+	private SqlSessionFactory sqlSessionFactory;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:stock;MODE=Oracle;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+		dataSource.setUser("sa");
+
+		try (Connection connection = dataSource.getConnection(); Statement st = connection.createStatement()) {
+			st.execute("DROP TABLE IF EXISTS LIBROS");
+			st.execute("CREATE TABLE LIBROS (id NUMBER(19) PRIMARY KEY, titulo VARCHAR2(200), autor VARCHAR2(200), "
+					+ "fecha_registro TIMESTAMP, stock NUMBER(10), editorial VARCHAR2(200), disponible NUMBER(1))");
+			st.execute("INSERT INTO LIBROS VALUES (1, 'Rayuela', 'Julio Cortázar', SYSDATE, " + INITIAL_STOCK + ", 'Sudamericana', 1)");
+		}
+
+		Configuration configuration = new Configuration(
+				new Environment("test", new JdbcTransactionFactory(), dataSource));
+		try (InputStream mapperXml = Resources.getResourceAsStream("mappers/BookMapper.xml")) {
+			new XMLMapperBuilder(mapperXml, configuration, "mappers/BookMapper.xml",
+					configuration.getSqlFragments()).parse();
+		}
+		sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+	}
+
+	@Test
+	void guardedDecrementNeverOversells() throws InterruptedException {
+		AtomicInteger loans = new AtomicInteger();
+
+		hammer(() -> {
+			try (SqlSession session = sqlSessionFactory.openSession(true)) {
+				if (session.getMapper(BookMapper.class).decrementStock(1L) == 1) {
+					loans.incrementAndGet();
+				}
+			}
+		});
+
+		Book book = findBook();
+		assertEquals(INITIAL_STOCK, loans.get(), "Cada ejemplar se presta exactamente una vez");
+		assertEquals(0, book.getStock());
+		assertFalse(book.getDisponible());
+	}
+
+	@Test
+	void incrementRestoresAvailability() {
+		try (SqlSession session = sqlSessionFactory.openSession(true)) {
+			BookMapper mapper = session.getMapper(BookMapper.class);
+			for (int i = 0; i < INITIAL_STOCK; i++) {
+				assertEquals(1, mapper.decrementStock(1L));
+			}
+			assertEquals(0, mapper.decrementStock(1L));
+
+			assertEquals(1, mapper.incrementStock(1L));
+		}
+
+		Book book = findBook();
+		assertEquals(1, book.getStock());
+		assertTrue(book.getDisponible());
+	}
+
+	@Test
+	void readModifyWriteLosesConcurrentLoans() {
+		// El patrón anterior (findById + updateBook) con dos préstamos intercalados: ambos leen el mismo
+		// stock y el segundo UPDATE pisa al primero, así que se registran dos préstamos y el stock baja uno
+		try (SqlSession first = sqlSessionFactory.openSession(true);
+			 SqlSession second = sqlSessionFactory.openSession(true)) {
+			Book readByFirst = first.getMapper(BookMapper.class).findById(1L);
+			Book readBySecond = second.getMapper(BookMapper.class).findById(1L);
+
+			readByFirst.setStock(readByFirst.getStock() - 1);
+			first.getMapper(BookMapper.class).updateBook(readByFirst);
+			readBySecond.setStock(readBySecond.getStock() - 1);
+			second.getMapper(BookMapper.class).updateBook(readBySecond);
+		}
+
+		assertEquals(INITIAL_STOCK - 1, findBook().getStock(), "Se perdió uno de los dos descuentos");
+	}
+
+	@Test
+	void guardedDecrementKeepsConcurrentLoans() {
+		// Los mismos dos préstamos intercalados con el UPDATE condicionado no pierden ninguno
+		try (SqlSession first = sqlSessionFactory.openSession(true);
+			 SqlSession second = sqlSessionFactory.openSession(true)) {
+			first.getMapper(BookMapper.class).findById(1L);
+			second.getMapper(BookMapper.class).findById(1L);
+
+			assertEquals(1, first.getMapper(BookMapper.class).decrementStock(1L));
+			assertEquals(1, second.getMapper(BookMapper.class).decrementStock(1L));
+		}
+
+		assertEquals(INITIAL_STOCK - 2, findBook().getStock());
+	}
+
+	private void hammer(Runnable loanAttempt) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			pool.submit(() -> {
+				start.await();
+				for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+					loanAttempt.run();
+				}
+				return null;
+			});
+		}
+
+		start.countDown();
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+	}
+
+	private Book findBook() {
+		try (SqlSession session = sqlSessionFactory.openSession(true)) {
+			return session.getMapper(BookMapper.class).findById(1L);
+		}
+	}
+}
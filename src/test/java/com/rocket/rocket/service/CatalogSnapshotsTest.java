@@ -0,0 +1,93 @@
+package com.rocket.rocket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rocket.rocket.model.Book;
+import com.rocket.rocket.utils.CustomResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link CatalogSnapshots} nunca sirve una instantánea de una versión anterior a la vigente.
+ */
+class CatalogSnapshotsTest {
+
+	// Lo que devuelve el primario y la versión de BOOKS; los mocks se configuran una sola vez porque el
+	// hilo de regeneración los llama mientras corre la prueba
+	private final AtomicReference<String> title = new AtomicReference<>();
+	private final AtomicLong version = new AtomicLong();
+	private CatalogSnapshots snapshots;
+
+	@BeforeEach
+	void setUp() {
+		BookService bookService = mock(BookService.class);
+		when(bookService.findAll()).thenAnswer(invocation -> books(title.get()));
+		when(bookService.findAvailable()).thenAnswer(invocation -> books(title.get()));
+		CollectionVersions collectionVersions = mock(CollectionVersions.class);
+		when(collectionVersions.version(CollectionVersions.Collection.BOOKS)).thenAnswer(invocation -> version.get());
+		snapshots = new CatalogSnapshots(bookService, new ObjectMapper(), collectionVersions);
+	}
+
+	@AfterEach
+	void tearDown() {
+		snapshots.shutdown();
+	}
+
+	@Test
+	void versionBumpHidesTheSnapshotUntilItIsRegenerated() throws InterruptedException {
+		version.set(1);
+		title.set("Pedro Páramo");
+		assertTrue(json(awaitSnapshot()).contains("Pedro Páramo"));
+
+		// Escritura confirmada en el primario: la versión sube y la instantánea de la 1 deja de servirse
+		title.set("Aura");
+		version.set(2);
+
+		assertNull(snapshots.current(CatalogSnapshots.Catalog.ALL));
+		String regenerated = json(awaitSnapshot());
+		assertTrue(regenerated.contains("Aura"), regenerated);
+	}
+
+	@Test
+	void unknownVersionHasNoSnapshot() throws InterruptedException {
+		version.set(-1);
+		title.set("Aura");
+
+		assertNull(snapshots.current(CatalogSnapshots.Catalog.ALL));
+		Thread.sleep(100);
+		assertNull(snapshots.current(CatalogSnapshots.Catalog.ALL));
+	}
+
+	private CatalogSnapshots.Snapshot awaitSnapshot() throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		CatalogSnapshots.Snapshot snapshot;
+		while ((snapshot = snapshots.current(CatalogSnapshots.Catalog.ALL)) == null) {
+			assertTrue(System.nanoTime() < deadline, "La instantánea no se regeneró");
+			Thread.sleep(5);
+		}
+		return snapshot;
+	}
+
+	private static CustomResponse<List<Book>> books(String titulo) {
+		Book book = new Book();
+		book.setId(1L);
+		book.setTitulo(titulo);
+		return new CustomResponse<>(Collections.singletonList(book), 200, "Libros encontrados", false);
+	}
+
+	private static String json(CatalogSnapshots.Snapshot snapshot) {
+		return new String(snapshot.getJson(), StandardCharsets.UTF_8);
+	}
+}
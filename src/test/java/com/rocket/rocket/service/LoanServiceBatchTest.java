@@ -0,0 +1,147 @@
+package com.rocket.rocket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rocket.rocket.config.IdAllocatorConfig;
+import com.rocket.rocket.mapper.BookMapper;
+import com.rocket.rocket.mapper.LoanMapper;
+import com.rocket.rocket.mapper.NotificationMapper;
+import com.rocket.rocket.mapper.SequenceMapper;
+import com.rocket.rocket.mapper.StudentMapper;
+import com.rocket.rocket.model.Loan;
+import com.rocket.rocket.model.LoanBatchResult;
+import com.rocket.rocket.utils.BlockIdAllocator;
+import com.rocket.rocket.utils.CustomResponse;
+import com.rocket.rocket.utils.IdAllocator;
+import com.rocket.rocket.utils.SequenceIdAllocator;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * POST /loans/batch contra H2 en modo Oracle con la transacción BATCH real de mybatis-spring,
+ * asignando IDs desde la secuencia a mitad del lote.
+ */
+class LoanServiceBatchTest {
+
+	private static final int BLOCK_SIZE = 2;
+
+	private JdbcDataSource dataSource;
+	private SqlSessionFactory sqlSessionFactory;
+	private SqlSessionTemplate session;
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:batch;MODE=Oracle;DB_CLOSE_DELAY=-1");
+		dataSource.setUser("sa");
+
+		try (Connection connection = dataSource.getConnection(); Statement st = connection.createStatement()) {
+			st.execute("DROP ALL OBJECTS");
+			st.execute("CREATE SEQUENCE PRESTAMOS_SEQ START WITH 1 INCREMENT BY " + BLOCK_SIZE);
+			st.execute("CREATE TABLE USUARIOS (ID NUMBER(19) PRIMARY KEY, NOMBRE VARCHAR2(100), APELLIDOS VARCHAR2(100), "
+					+ "TELEFONO VARCHAR2(20), EMAIL VARCHAR2(100), MATRICULA VARCHAR2(20))");
+			st.execute("CREATE TABLE LIBROS (ID NUMBER(19) PRIMARY KEY, TITULO VARCHAR2(200), AUTOR VARCHAR2(200), "
+					+ "FECHA_REGISTRO TIMESTAMP, STOCK NUMBER(10), EDITORIAL VARCHAR2(200), DISPONIBLE NUMBER(1))");
+			st.execute("CREATE TABLE PRESTAMOS (ID NUMBER(19) PRIMARY KEY, USUARIO_ID NUMBER(19), LIBRO_ID NUMBER(19), "
+					+ "FECHA_PRESTAMO DATE, FECHA_DEVOLUCION DATE, ESTADO VARCHAR2(20))");
+			st.execute("CREATE TABLE NOTIFICACIONES (ID NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+					+ "TIPO VARCHAR2(40), PRESTAMO_ID NUMBER, USUARIO_ID NUMBER, ESTADO VARCHAR2(20), INTENTOS NUMBER(3), "
+					+ "PROXIMO_INTENTO TIMESTAMP, ULTIMO_ERROR VARCHAR2(500), LOTE VARCHAR2(36), "
+					+ "FECHA_CREACION TIMESTAMP, FECHA_ACTUALIZACION TIMESTAMP)");
+			st.execute("INSERT INTO USUARIOS VALUES (1, 'Ana', 'López', '7770000001', 'ana@utez.edu.mx', '20213TN001')");
+			st.execute("INSERT INTO USUARIOS VALUES (2, 'Luis', 'Pérez', '7770000002', 'luis@utez.edu.mx', '20213TN002')");
+			for (int book = 1; book <= 3; book++) {
+				st.execute("INSERT INTO LIBROS VALUES (" + book + ", 'Libro " + book + "', 'Autor', SYSDATE, 5, 'Editorial', 1)");
+			}
+		}
+
+		SqlSessionFactoryBean factoryBean = new SqlSessionFactoryBean();
+		factoryBean.setDataSource(dataSource);
+		factoryBean.setTypeAliasesPackage("com.rocket.rocket.model");
+		factoryBean.setMapperLocations(new PathMatchingResourcePatternResolver().getResources("classpath:mappers/*.xml"));
+		sqlSessionFactory = factoryBean.getObject();
+		session = new SqlSessionTemplate(sqlSessionFactory);
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+	}
+
+	@Test
+	void blockAllocatorRefillsInsideTheBatchTransaction() throws SQLException {
+		// Cinco préstamos con bloques de dos: la primera recarga y otras dos caen a mitad del lote
+		IdAllocator allocator = new BlockIdAllocator(nextVal(), BLOCK_SIZE);
+
+		CustomResponse<List<LoanBatchResult>> response = register(allocator, fiveLoans());
+
+		assertEquals(200, response.getCode(), response.getMessage());
+		for (LoanBatchResult result : response.getData()) {
+			assertEquals(201, result.getCode(), result.getMessage());
+		}
+		assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), column("SELECT ID FROM PRESTAMOS ORDER BY ID"));
+		assertEquals(Arrays.asList(5L), column("SELECT COUNT(*) FROM NOTIFICACIONES"));
+		assertEquals(Arrays.asList(3L, 3L, 4L), column("SELECT STOCK FROM LIBROS ORDER BY ID"));
+	}
+
+	@Test
+	void sequenceAllocatorRunsInsideTheBatchTransaction() throws SQLException {
+		IdAllocator allocator = new SequenceIdAllocator(nextVal());
+
+		CustomResponse<List<LoanBatchResult>> response = register(allocator, fiveLoans());
+
+		assertEquals(200, response.getCode(), response.getMessage());
+		assertEquals(Arrays.asList(1L, 3L, 5L, 7L, 9L), column("SELECT ID FROM PRESTAMOS ORDER BY ID"));
+	}
+
+	private CustomResponse<List<LoanBatchResult>> register(IdAllocator allocator, List<Loan> loans) {
+		LoanService service = new LoanService(session.getMapper(LoanMapper.class), session.getMapper(BookMapper.class),
+				session.getMapper(StudentMapper.class), session.getMapper(NotificationMapper.class), allocator,
+				new ObjectMapper(), mock(EntityCache.class), mock(CollectionVersions.class), mock(StudentDirectory.class),
+				mock(ReadCoalescer.class), mock(LoanStatistics.class), sqlSessionFactory);
+		// Igual que el @Transactional del proxy de Spring
+		return transactionTemplate.execute(status -> service.crearLoans(loans));
+	}
+
+	private LongSupplier nextVal() {
+		return IdAllocatorConfig.nextVal(sqlSessionFactory, session.getMapper(SequenceMapper.class), "PRESTAMOS_SEQ");
+	}
+
+	private static List<Loan> fiveLoans() {
+		List<Loan> loans = new ArrayList<>();
+		long[][] pairs = {{1, 1}, {1, 2}, {1, 3}, {2, 1}, {2, 2}};
+		for (long[] pair : pairs) {
+			Loan loan = new Loan();
+			loan.setUsuarioId(pair[0]);
+			loan.setLibroId(pair[1]);
+			loans.add(loan);
+		}
+		return loans;
+	}
+
+	private List<Long> column(String sql) throws SQLException {
+		List<Long> values = new ArrayList<>();
+		try (Connection connection = dataSource.getConnection(); Statement st = connection.createStatement();
+			 ResultSet rs = st.executeQuery(sql)) {
+			while (rs.next()) {
+				values.add(rs.getLong(1));
+			}
+		}
+		return values;
+	}
+}
@@ -0,0 +1,189 @@
+package com.rocket.rocket.service;
+
+import com.rocket.rocket.mapper.LoanMapper;
+import com.rocket.rocket.mapper.NotificationMapper;
+import com.rocket.rocket.model.Book;
+import com.rocket.rocket.model.Loan;
+import com.rocket.rocket.model.Notification;
+import com.rocket.rocket.model.Student;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessagePreparator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationDispatcherTest {
+
+	private NotificationMapper notificationMapper;
+	private LoanMapper loanMapper;
+	private FakeMailSender mailSender;
+	private NotificationDispatcher dispatcher;
+
+	@BeforeEach
+	void setUp() {
+		notificationMapper = mock(NotificationMapper.class);
+		loanMapper = mock(LoanMapper.class);
+		mailSender = new FakeMailSender();
+
+		ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+		resolver.setPrefix("templates/");
+		resolver.setSuffix(".html");
+		resolver.setCharacterEncoding("UTF-8");
+		TemplateEngine templateEngine = new TemplateEngine();
+		templateEngine.setTemplateResolver(resolver);
+
+		dispatcher = new NotificationDispatcher(notificationMapper, loanMapper,
+				new EmailService(mailSender, templateEngine), Runnable::run);
+
+		Notification pending = Notification.loanConfirmation(loan());
+		pending.setId(7L);
+		when(notificationMapper.claimBatch(anyString(), any(), anyInt())).thenReturn(1);
+		when(notificationMapper.findByLote(anyString())).thenReturn(Collections.singletonList(pending));
+		when(loanMapper.findByIdWithDetails(10L)).thenReturn(loan());
+	}
+
+	@Test
+	void sendsPendingNotificationAndMarksItSent() throws Exception {
+		assertEquals(1, dispatcher.drainOnce());
+
+		assertEquals(1, mailSender.sent.size());
+		assertEquals("ana@utez.edu.mx", mailSender.sent.get(0).getAllRecipients()[0].toString());
+		verify(notificationMapper).markSent(7L);
+	}
+
+	@Test
+	void failedSendIsRescheduledWithBackoff() {
+		mailSender.failing = true;
+
+		dispatcher.drainOnce();
+
+		verify(notificationMapper, never()).markSent(any());
+		verify(notificationMapper).markRetry(eq(7L), eq(1), any(LocalDateTime.class), eq("SMTP no disponible"));
+	}
+
+	@Test
+	void digestSendsOneEmailPerStudentOverOneConnection() throws Exception {
+		ReflectionTestUtils.setField(dispatcher, "digestEnabled", true);
+		Notification first = Notification.loanConfirmation(loan());
+		first.setId(7L);
+		Loan returned = loan();
+		returned.setId(11L);
+		Notification second = Notification.returnConfirmation(returned);
+		second.setId(8L);
+		when(notificationMapper.claimDigestBatch(anyString(), any(), any(LocalDateTime.class), anyInt())).thenReturn(2);
+		when(notificationMapper.findByLote(anyString())).thenReturn(Arrays.asList(first, second));
+		when(loanMapper.findByIdsWithDetails(any())).thenReturn(Arrays.asList(loan(), returned));
+
+		assertEquals(2, dispatcher.drainDigestOnce());
+
+		assertEquals(1, mailSender.sent.size());
+		assertEquals(1, mailSender.connections);
+		verify(notificationMapper).markSent(7L);
+		verify(notificationMapper).markSent(8L);
+	}
+
+	@Test
+	void digestFailureReschedulesEveryGroupedNotification() {
+		ReflectionTestUtils.setField(dispatcher, "digestEnabled", true);
+		mailSender.failing = true;
+		Notification first = Notification.loanConfirmation(loan());
+		first.setId(7L);
+		when(notificationMapper.claimDigestBatch(anyString(), any(), any(LocalDateTime.class), anyInt())).thenReturn(1);
+		when(notificationMapper.findByLote(anyString())).thenReturn(Collections.singletonList(first));
+		when(loanMapper.findByIdsWithDetails(any())).thenReturn(Collections.singletonList(loan()));
+
+		dispatcher.drainDigestOnce();
+
+		verify(notificationMapper, never()).markSent(any());
+		verify(notificationMapper).markRetry(eq(7L), eq(1), any(LocalDateTime.class), eq("SMTP no disponible"));
+	}
+
+	private static Loan loan() {
+		Student student = new Student(3L, "Ana", "López", null, "ana@utez.edu.mx", "20213TN001");
+		Book book = new Book();
+		book.setId(5L);
+		book.setTitulo("Cien años de soledad");
+		book.setAutor("Gabriel García Márquez");
+		Loan loan = new Loan(10L, 3L, 5L, LocalDate.now(), LocalDate.now().plusDays(15), "ACTIVO", student, book);
+		return loan;
+	}
+
+	/**
+	 * JavaMailSender en memoria: guarda los mensajes en lugar de abrir una conexión SMTP
+	 */
+	private static class FakeMailSender implements JavaMailSender {
+
+		private final List<MimeMessage> sent = new ArrayList<>();
+		private boolean failing;
+		private int connections;
+
+		@Override
+		public MimeMessage createMimeMessage() {
+			return new MimeMessage(Session.getInstance(new Properties()));
+		}
+
+		@Override
+		public MimeMessage createMimeMessage(InputStream contentStream) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void send(MimeMessage mimeMessage) {
+			send(new MimeMessage[]{mimeMessage});
+		}
+
+		@Override
+		public void send(MimeMessage... mimeMessages) {
+			connections++;
+			if (failing) {
+				throw new MailSendException("SMTP no disponible");
+			}
+			Collections.addAll(sent, mimeMessages);
+		}
+
+		@Override
+		public void send(MimeMessagePreparator mimeMessagePreparator) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void send(MimeMessagePreparator... mimeMessagePreparators) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void send(SimpleMailMessage simpleMessage) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void send(SimpleMailMessage... simpleMessages) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package com.rocket.rocket.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Single-flight de {@link ReadCoalescer}: la llamada que ejecuta la consulta (líder) la comparte con las que
+ * llegan mientras está en curso (seguidoras), incluido su error, y solo con las de la misma clave.
+ */
+class ReadCoalescerTest {
+
+	private SimpleMeterRegistry registry;
+	private ReadCoalescer coalescer;
+	private ExecutorService executor;
+
+	@BeforeEach
+	void setUp() {
+		registry = new SimpleMeterRegistry();
+		coalescer = new ReadCoalescer(registry);
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void followerReceivesTheLeaderResult() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		Supplier<List<String>> loader = () -> {
+			loads.incrementAndGet();
+			started.countDown();
+			await(release);
+			return new ArrayList<>();
+		};
+
+		Future<List<String>> leader = executor.submit(() -> coalescer.execute("books.findAll", loader, 7L));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		Future<List<String>> follower = executor.submit(() -> coalescer.execute("books.findAll", loader, 7L));
+		awaitCount("shared", 1);
+		release.countDown();
+
+		assertSame(leader.get(5, TimeUnit.SECONDS), follower.get(5, TimeUnit.SECONDS));
+		assertEquals(1, loads.get());
+		assertEquals(1.0, count("executed"));
+	}
+
+	@Test
+	void leaderFailureReachesTheFollower() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		IllegalStateException failure = new IllegalStateException("ORA-03113");
+		Supplier<List<String>> loader = () -> {
+			started.countDown();
+			await(release);
+			throw failure;
+		};
+
+		Future<List<String>> leader = executor.submit(() -> coalescer.execute("books.findAll", loader, 7L));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		Future<List<String>> follower = executor.submit(() -> coalescer.execute("books.findAll", loader, 7L));
+		awaitCount("shared", 1);
+		release.countDown();
+
+		assertSame(failure, assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+		assertSame(failure, assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+
+		// El error no se queda guardado: la siguiente llamada vuelve a consultar
+		List<String> retry = coalescer.execute("books.findAll", ArrayList::new, 7L);
+		assertTrue(retry.isEmpty());
+		assertEquals(2.0, count("executed"));
+	}
+
+	@Test
+	void newVersionDoesNotJoinTheReadOfThePreviousOne() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Supplier<List<String>> stale = () -> {
+			started.countDown();
+			await(release);
+			return new ArrayList<>();
+		};
+
+		Future<List<String>> before = executor.submit(() -> coalescer.execute("books.findAll", stale, 7L));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		// Termina mientras la lectura de la versión 7 sigue bloqueada: no la esperó
+		List<String> after = executor.submit(() -> coalescer.execute("books.findAll", ArrayList::new, 8L))
+				.get(5, TimeUnit.SECONDS);
+		release.countDown();
+
+		assertNotSame(before.get(5, TimeUnit.SECONDS), after);
+		assertEquals(2.0, count("executed"));
+		assertEquals(0.0, count("shared"));
+	}
+
+	@Test
+	void readInsideTransactionIsNotShared() {
+		AtomicInteger loads = new AtomicInteger();
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		try {
+			coalescer.execute("books.findAll", loads::incrementAndGet, 7L);
+			coalescer.execute("books.findAll", loads::incrementAndGet, 7L);
+		} finally {
+			TransactionSynchronizationManager.setActualTransactionActive(false);
+		}
+
+		assertEquals(2, loads.get());
+		assertEquals(0.0, count("executed") + count("shared"));
+	}
+
+	private double count(String result) {
+		return registry.find("rocket.read.coalesced").tag("result", result).counters().stream()
+				.mapToDouble(counter -> counter.count()).sum();
+	}
+
+	// La seguidora incrementa "shared" justo antes de esperar el resultado del líder
+	private void awaitCount(String result, double expected) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (count(result) < expected) {
+			assertTrue(System.nanoTime() < deadline, "La seguidora no se unió a la lectura en curso");
+			Thread.sleep(5);
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
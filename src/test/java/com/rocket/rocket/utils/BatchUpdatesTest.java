@@ -0,0 +1,60 @@
+package com.rocket.rocket.utils;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StaticSqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Conteos de un flush BATCH: un UPDATE condicionado sin conteo del driver no se da por aplicado.
+ */
+class BatchUpdatesTest {
+
+	@Test
+	void readsCountsAcrossStatementsInOrder() {
+		List<BatchResult> results = Arrays.asList(result("decrementStockBy", 1, 0), result("insertLoan", 1));
+
+		assertArrayEquals(new int[]{1, 0, 1}, BatchUpdates.counts(results, 3));
+	}
+
+	@Test
+	void guardedUpdateWithoutRowCountFails() {
+		List<BatchResult> results = Arrays.asList(result("decrementStockBy", 1, Statement.SUCCESS_NO_INFO));
+
+		assertThrows(IllegalStateException.class, () -> BatchUpdates.counts(results, 2));
+	}
+
+	@Test
+	void insertWithoutRowCountCountsAsExecuted() {
+		List<BatchResult> results = Arrays.asList(result("insertImportedBook", Statement.SUCCESS_NO_INFO,
+				Statement.EXECUTE_FAILED));
+
+		assertArrayEquals(new int[]{1, 0}, BatchUpdates.insertCounts(results, 2));
+	}
+
+	@Test
+	void mismatchedStatementCountFails() {
+		List<BatchResult> results = Arrays.asList(result("markOverdue", 1, 1, 1));
+
+		assertThrows(IllegalStateException.class, () -> BatchUpdates.counts(results, 2));
+		assertThrows(IllegalStateException.class, () -> BatchUpdates.insertCounts(results, 4));
+	}
+
+	private static BatchResult result(String id, int... counts) {
+		Configuration configuration = new Configuration();
+		MappedStatement statement = new MappedStatement.Builder(configuration, id,
+				new StaticSqlSource(configuration, "UPDATE"), SqlCommandType.UPDATE).build();
+		BatchResult result = new BatchResult(statement, "UPDATE", null);
+		result.setUpdateCounts(counts);
+		return result;
+	}
+}
@@ -0,0 +1,121 @@
+package com.rocket.rocket.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de concurrencia de los asignadores de IDs contra una secuencia de H2 en modo Oracle.
+ */
+class BlockIdAllocatorTest {
+
+	private static final int THREADS = 8;
+	private static final int IDS_PER_THREAD = 5_000;
+	private static final int BLOCK_SIZE = 50;
+
+	private Connection connection;
+	private final AtomicInteger roundTrips = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		connection = DriverManager.getConnection("jdbc:h2:mem:ids;MODE=Oracle;DB_CLOSE_DELAY=-1", "sa", "");
+		try (Statement st = connection.createStatement()) {
+			st.execute("DROP SEQUENCE IF EXISTS PRESTAMOS_SEQ");
+			st.execute("CREATE SEQUENCE PRESTAMOS_SEQ START WITH 1 INCREMENT BY " + BLOCK_SIZE);
+		}
+		roundTrips.set(0);
+	}
+
+	@AfterEach
+	void tearDown() throws SQLException {
+		connection.close();
+	}
+
+	@Test
+	void blockAllocatorNeverRepeatsIds() throws InterruptedException {
+		IdAllocator allocator = new BlockIdAllocator(nextVal(), BLOCK_SIZE);
+
+		Set<Long> ids = run(allocator, "block");
+
+		int total = THREADS * IDS_PER_THREAD;
+		// Un solo NEXTVAL por bloque aunque varios hilos lo agoten a la vez
+		assertEquals(total / BLOCK_SIZE, roundTrips.get());
+		// Los bloques se consumen completos: sin huecos entre 1 y total
+		assertEquals(1L, Collections.min(ids));
+		assertEquals((long) total, Collections.max(ids));
+	}
+
+	@Test
+	void sequenceAllocatorNeverRepeatsIds() throws InterruptedException {
+		IdAllocator allocator = new SequenceIdAllocator(nextVal());
+
+		Set<Long> ids = run(allocator, "sequence");
+
+		assertEquals(THREADS * IDS_PER_THREAD, roundTrips.get());
+		// Cada ID es un NEXTVAL, así que avanza de INCREMENT BY en INCREMENT BY
+		for (long id : ids) {
+			assertEquals(1, id % BLOCK_SIZE);
+		}
+	}
+
+	private Set<Long> run(IdAllocator allocator, String name) throws InterruptedException {
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		AtomicInteger duplicates = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+		for (int t = 0; t < THREADS; t++) {
+			pool.submit(() -> {
+				start.await();
+				for (int i = 0; i < IDS_PER_THREAD; i++) {
+					if (!ids.add(allocator.nextId())) {
+						duplicates.incrementAndGet();
+					}
+				}
+				return null;
+			});
+		}
+
+		start.countDown();
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS), name + " no terminó a tiempo");
+
+		assertEquals(0, duplicates.get(), name + " entregó IDs repetidos");
+		assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+		return ids;
+	}
+
+	private LongSupplier nextVal() {
+		return () -> {
+			roundTrips.incrementAndGet();
+			// Una sola conexión compartida, igual que un pool de tamaño uno
+			synchronized (connection) {
+				try (Statement st = connection.createStatement();
+					 ResultSet rs = st.executeQuery("SELECT PRESTAMOS_SEQ.NEXTVAL FROM DUAL")) {
+					rs.next();
+					return rs.getLong(1);
+				} catch (SQLException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,41 @@
+package com.rocket.rocket.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Lectura de CSV con comillas, saltos de línea dentro de campos y finales \r\n.
+ */
+class CsvReaderTest {
+
+	@Test
+	void readsQuotedFieldsAndLineNumbers() throws IOException {
+		CsvReader csv = new CsvReader(new StringReader(
+				"titulo,autor\r\n\"Cien años, de soledad\",\"Gabriel \"\"Gabo\"\" García\"\r\n\"Dos\nlíneas\",\r\nFin,X"));
+
+		assertEquals(Arrays.asList("titulo", "autor"), csv.next());
+		assertEquals(1, csv.getRecordLine());
+		assertEquals(Arrays.asList("Cien años, de soledad", "Gabriel \"Gabo\" García"), csv.next());
+		assertEquals(2, csv.getRecordLine());
+		assertEquals(Arrays.asList("Dos\nlíneas", ""), csv.next());
+		assertEquals(3, csv.getRecordLine());
+		assertEquals(Arrays.asList("Fin", "X"), csv.next());
+		assertEquals(5, csv.getRecordLine());
+		assertNull(csv.next());
+	}
+
+	@Test
+	void rejectsUnclosedQuote() throws IOException {
+		CsvReader csv = new CsvReader(new StringReader("titulo\n\"sin cerrar\n"));
+
+		csv.next();
+		assertThrows(IOException.class, csv::next);
+	}
+}
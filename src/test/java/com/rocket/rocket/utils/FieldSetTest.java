@@ -0,0 +1,99 @@
+package com.rocket.rocket.utils;
+
+import com.rocket.rocket.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parámetro fields: solo nombres declarados tal cual (las expresiones se insertan con ${} en el SQL)
+ * y proyección de la entidad a los campos elegidos.
+ */
+class FieldSetTest {
+
+	private static final FieldSet<Book> FIELDS = new FieldSet<Book>("id", "id", Book::getId)
+			.field("titulo", "titulo", Book::getTitulo)
+			.field("autor", "autor", Book::getAutor)
+			.field("stock", "stock", Book::getStock);
+
+	@Test
+	void rejectsUnknownField() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> FIELDS.parse("titulo,isbn"));
+
+		assertEquals("Campo desconocido 'isbn'. Campos disponibles: id, titulo, autor, stock", e.getMessage());
+	}
+
+	@Test
+	void rejectsSqlInjectedNames() {
+		for (String fields : Arrays.asList(
+				"titulo FROM LIBROS --",
+				"titulo;DROP TABLE LIBROS",
+				"(SELECT password FROM USUARIOS)",
+				"titulo/**/",
+				"id AS x, autor",
+				"'titulo'")) {
+			assertThrows(IllegalArgumentException.class, () -> FIELDS.parse(fields), fields);
+		}
+	}
+
+	@Test
+	void rejectsCaseAndWhitespaceVariants() {
+		for (String fields : Arrays.asList(
+				"TITULO",
+				"Titulo",
+				"ti tulo",
+				"titulo autor",
+				"titulo\t",
+				"\nautor",
+				"titulo\u00a0",
+				"\u2003autor")) {
+			assertThrows(IllegalArgumentException.class, () -> FIELDS.parse(fields), fields);
+		}
+	}
+
+	@Test
+	void ignoresSpacesAroundCommasAndEmptyNames() {
+		FieldSet<Book>.Selection selection = FIELDS.parse(" autor , ,titulo,");
+
+		assertEquals(Arrays.asList("id", "titulo", "autor"), selection.getColumns());
+	}
+
+	@Test
+	void alwaysIncludesKeyInDeclaredOrder() {
+		FieldSet<Book>.Selection selection = FIELDS.parse("stock,titulo,stock");
+
+		assertEquals(Arrays.asList("id", "titulo", "stock"), selection.getColumns());
+		assertTrue(selection.includes("id"));
+		assertTrue(selection.includes("stock"));
+		assertFalse(selection.includes("autor"));
+		assertEquals(Collections.singletonList("id"), FIELDS.parse("").getColumns());
+	}
+
+	@Test
+	void projectsOnlySelectedFields() {
+		Book book = new Book();
+		book.setId(7L);
+		book.setTitulo("Pedro Páramo");
+		book.setAutor("Juan Rulfo");
+		book.setStock(3);
+
+		FieldSet<Book>.Selection selection = FIELDS.parse("stock,titulo");
+		Map<String, Object> expected = new LinkedHashMap<>();
+		expected.put("id", 7L);
+		expected.put("titulo", "Pedro Páramo");
+		expected.put("stock", 3);
+
+		Map<String, Object> projected = selection.project(book);
+		assertEquals(expected, projected);
+		assertEquals(Arrays.asList("id", "titulo", "stock"), Arrays.asList(projected.keySet().toArray()));
+		assertEquals(Collections.singletonList(expected), selection.project(Collections.singletonList(book)));
+	}
+}
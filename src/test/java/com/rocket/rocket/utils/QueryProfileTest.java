@@ -0,0 +1,71 @@
+package com.rocket.rocket.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Detección de sentencias repetidas y N+1 del perfil por petición.
+ */
+class QueryProfileTest {
+
+	private static final String FIND_BOOK = "com.rocket.rocket.mapper.BookMapper.findById";
+	private static final String FIND_LOANS = "com.rocket.rocket.mapper.LoanMapper.findAllWithDetails";
+
+	@Test
+	void flagsSingleRowLookupsInALoop() {
+		QueryProfile profile = new QueryProfile("GET /loans/all", 100, 3);
+		profile.record(FIND_LOANS, true, "", 2_000_000, 3);
+		for (int id = 1; id <= 3; id++) {
+			profile.record(FIND_BOOK, true, Integer.toString(id), 500_000, 1);
+		}
+
+		assertTrue(profile.hasFindings());
+		assertEquals("queries=4; time=3.5ms; n+1=BookMapper.findById*3", profile.header());
+	}
+
+	@Test
+	void flagsIdenticalStatementsAndIgnoresMultiRowQueries() {
+		QueryProfile profile = new QueryProfile("GET /books/1", 100, 3);
+		profile.record(FIND_BOOK, true, "1", 1_000_000, 1);
+		profile.record(FIND_BOOK, true, "1", 1_000_000, 1);
+		for (int page = 0; page < 3; page++) {
+			profile.record(FIND_LOANS, true, Integer.toString(page), 1_000_000, 50);
+		}
+
+		assertEquals("queries=5; time=5.0ms; repeated=BookMapper.findById*2", profile.header());
+	}
+
+	@Test
+	void countsStatementsBeyondTheLimitWithoutDetail() {
+		QueryProfile profile = new QueryProfile("POST /books/import", 2, 3);
+		for (int i = 0; i < 5; i++) {
+			profile.record("com.rocket.rocket.mapper.BookMapper.insertImportedBook", false, Integer.toString(i), 0, 1);
+		}
+
+		assertFalse(profile.hasFindings());
+		assertEquals("queries=5; time=0.0ms; untracked=3", profile.header());
+		assertEquals(2, profile.details().size());
+	}
+
+	@Test
+	void wrapCarriesTheProfileToAnotherThread() throws InterruptedException {
+		QueryProfile profile = new QueryProfile("GET /stats", 10, 3);
+		QueryProfile[] seen = new QueryProfile[1];
+		QueryProfile.bind(profile);
+		try {
+			Thread thread = new Thread(QueryProfile.wrap(() -> seen[0] = QueryProfile.current()));
+			thread.start();
+			thread.join();
+		} finally {
+			QueryProfile.bind(null);
+		}
+
+		assertSame(profile, seen[0]);
+		assertNull(QueryProfile.current());
+	}
+}
@@ -0,0 +1,48 @@
+package com.rocket.rocket.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ráfaga, reposición y límite de clientes del token bucket.
+ */
+class TokenBucketLimiterTest {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	void admitsBurstThenRefillsAtRate() {
+		TokenBucketLimiter limiter = new TokenBucketLimiter(2, 3, 100);
+		long now = 1_000 * SECOND;
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, limiter.tryAcquire("kiosko", now));
+		}
+		long wait = limiter.tryAcquire("kiosko", now);
+		assertEquals(SECOND / 2, wait);
+		assertEquals(0, limiter.tryAcquire("otro", now));
+
+		assertEquals(0, limiter.tryAcquire("kiosko", now + wait));
+		assertTrue(limiter.tryAcquire("kiosko", now + wait) > 0);
+	}
+
+	@Test
+	void evictsFullBucketsFirst() {
+		TokenBucketLimiter limiter = new TokenBucketLimiter(1, 2, 10);
+		long now = 1_000 * SECOND;
+
+		for (int i = 0; i < 10; i++) {
+			limiter.tryAcquire("cliente-" + i, now - 10 * SECOND);
+		}
+		assertEquals(0, limiter.tryAcquire("activo", now));
+		assertEquals(0, limiter.tryAcquire("activo", now));
+
+		assertEquals(1, limiter.size());
+		assertEquals(10, limiter.getEvictions());
+		assertTrue(limiter.tryAcquire("activo", now) > 0);
+	}
+}